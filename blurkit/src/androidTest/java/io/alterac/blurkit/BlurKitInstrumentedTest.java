@@ -3,6 +3,7 @@ package io.alterac.blurkit;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Color;
 import android.support.test.InstrumentationRegistry;
 import android.support.test.runner.AndroidJUnit4;
 
@@ -10,6 +11,14 @@ import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
@@ -42,4 +51,78 @@ public class BlurKitInstrumentedTest {
         assertTrue(blur1.sameAs(blur2));
         assertFalse(blur1.sameAs(original));
     }
+
+    @Test
+    public void blurRadiusOutOfRangeTest() {
+        assertTrue(blurKit.blur(blur1, 0).sameAs(original));
+
+        blur1 = blurKit.blur(blur1, 40);
+        blur2 = blurKit.blur(blur2, 25);
+        assertTrue(blur1.sameAs(blur2));
+    }
+
+    @Test
+    public void blurImmutableTest() {
+        Bitmap immutable = original.copy(original.getConfig(), false);
+        Bitmap blurred = blurKit.blur(immutable, 10);
+
+        assertTrue(blurred.isMutable());
+        assertTrue(immutable.sameAs(original));
+        assertFalse(blurred.sameAs(original));
+    }
+
+    @Test
+    public void blurLeavesPreviousResultUnchangedTest() {
+        blur1 = blurKit.blur(blur1, 10);
+        Bitmap blur1Copy = blur1.copy(blur1.getConfig(), false);
+
+        // Same size, different content, so the cached allocations are re-used.
+        Bitmap other = Bitmap.createBitmap(original.getWidth(), original.getHeight(), original.getConfig());
+        other.eraseColor(Color.RED);
+        blurKit.blur(other, 10);
+
+        assertTrue(blur1.sameAs(blur1Copy));
+    }
+
+    @Test
+    public void concurrentBlurStressTest() throws Exception {
+        final int threads = 16;
+        final int iterations = 25;
+        final Bitmap firstResult = blurKit.blur(original.copy(original.getConfig(), true), 10);
+        final Bitmap expected = firstResult.copy(firstResult.getConfig(), false);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    start.await();
+                    Bitmap previous = null;
+                    for (int j = 0; j < iterations; j++) {
+                        Bitmap bitmap = original.copy(original.getConfig(), true);
+                        if (!BlurKit.getInstance().blur(bitmap, 10).sameAs(expected)) {
+                            return false;
+                        }
+
+                        // Results already returned must not be touched by later blurs.
+                        if (previous != null && !previous.sameAs(expected)) {
+                            return false;
+                        }
+                        previous = bitmap;
+                    }
+                    return true;
+                }
+            }));
+        }
+
+        start.countDown();
+        for (Future<Boolean> result : results) {
+            assertTrue(result.get());
+        }
+        executor.shutdown();
+
+        assertTrue(firstResult.sameAs(expected));
+    }
 }
@@ -0,0 +1,81 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+
+/**
+ * Small pool of mutable bitmaps keyed by size and config. Bitmaps handed back through
+ * {@link #put(Bitmap)} are re-used by {@link #get(int, int, Bitmap.Config)} instead of
+ * allocating a new one, up to {@link #mMaxBytes} bytes of idle bitmaps.
+ */
+class BitmapPool {
+
+    static final int DEFAULT_MAX_BYTES = 8 * 1024 * 1024;
+
+    /** Maximum number of bytes of idle bitmaps kept around. */
+    private final int mMaxBytes;
+
+    /** Idle bitmaps, least recently returned first. */
+    private final LinkedList<Bitmap> mBitmaps = new LinkedList<>();
+
+    /** Bytes currently held by idle bitmaps. */
+    private int mBytes;
+
+    BitmapPool(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a pooled bitmap matching the requested size and config, or a new one if none is idle.
+     * Re-used bitmaps are cleared to transparent, so nothing of their previous content shows through
+     * images with alpha drawn into them.
+     */
+    synchronized Bitmap get(int width, int height, Bitmap.Config config) {
+        Iterator<Bitmap> iterator = mBitmaps.iterator();
+        while (iterator.hasNext()) {
+            Bitmap bitmap = iterator.next();
+            if (bitmap.getWidth() == width && bitmap.getHeight() == height && bitmap.getConfig() == config) {
+                iterator.remove();
+                mBytes -= bitmap.getByteCount();
+                bitmap.eraseColor(Color.TRANSPARENT);
+                return bitmap;
+            }
+        }
+
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /** Hands a bitmap back to the pool. Immutable or recycled bitmaps are ignored. */
+    synchronized void put(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled() || !bitmap.isMutable() || mBitmaps.contains(bitmap)) {
+            return;
+        }
+
+        mBitmaps.addLast(bitmap);
+        mBytes += bitmap.getByteCount();
+        trimTo(mMaxBytes);
+    }
+
+    /** Recycles idle bitmaps, oldest first, until at most maxBytes are held. */
+    synchronized void trimTo(int maxBytes) {
+        while (mBytes > maxBytes && !mBitmaps.isEmpty()) {
+            Bitmap bitmap = mBitmaps.removeFirst();
+            mBytes -= bitmap.getByteCount();
+            bitmap.recycle();
+        }
+    }
+
+    /** Recycles all idle bitmaps. */
+    synchronized void clear() {
+        trimTo(0);
+    }
+
+    /** Bytes currently held by idle bitmaps. */
+    synchronized int getByteCount() {
+        return mBytes;
+    }
+
+}
@@ -0,0 +1,286 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Matrix;
+import android.view.Choreographer;
+import android.view.View;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A blurred copy of a whole window shared by many {@link BlurLayout}s, for example the items of a
+ * RecyclerView or ListView. The window is captured and blurred once per frame, or only once when
+ * {@link #setStatic(boolean) static}, and each registered layout draws its own region from it based
+ * on its position on screen. The cost per frame stays about the same no matter how many layouts are
+ * visible. See {@link BlurLayout#setBackdrop(BlurBackdrop)}.
+ */
+public class BlurBackdrop {
+
+    /** A view in the window to blur. Its root view is captured. */
+    private final View mHostView;
+
+    /** Factor to scale the window bitmap with before blurring. */
+    private float mDownscaleFactor = BlurLayout.DEFAULT_DOWNSCALE_FACTOR;
+
+    /** Blur radius used on the downscaled window bitmap. */
+    private int mBlurRadius = BlurLayout.DEFAULT_BLUR_RADIUS;
+
+    /** Number of blur invalidations to do per second. With 0 the layouts are only redrawn after {@link #invalidate()}. */
+    private int mFPS = BlurLayout.DEFAULT_FPS;
+
+    /**
+     * Config of the blurred window bitmap. Null picks RGB_565 for an opaque window when static, as it
+     * is then blurred once and kept, and ARGB_8888 otherwise. See {@link BlurKit#getConfigForView(View)}.
+     */
+    private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
+
+    /** Is the content behind the layouts static? If so it is only blurred again after {@link #invalidate()}. */
+    private boolean mStatic;
+
+    /** Does the window need to be captured and blurred again on the next frame? */
+    private boolean mDirty = true;
+
+    /** Layouts currently attached to a window and drawing from this backdrop. */
+    private final List<BlurLayout> mLayouts = new ArrayList<>();
+
+    /** Is the frame callback posted? */
+    private boolean mRunning;
+
+    /** Re-used blurred bitmap of the whole window. */
+    private Bitmap mBitmap;
+
+    private final Matrix mMatrix = new Matrix();
+
+    /** Choreographer callback that re-blurs the window if needed, redraws the layouts and schedules another callback. */
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            if (mDirty || !mStatic) {
+                update();
+            }
+
+            for (int i = 0; i < mLayouts.size(); i++) {
+                mLayouts.get(i).invalidate();
+            }
+
+            if (mRunning && mFPS > 0) {
+                postFrame(1000 / mFPS);
+            }
+        }
+    };
+
+    /**
+     * @param hostView Any view in the window the layouts are placed in, for example the RecyclerView.
+     */
+    public BlurBackdrop(View hostView) {
+        mHostView = hostView;
+        BlurKit.init(hostView.getContext());
+    }
+
+    /** Called by a layout when it is attached to a window. Starts the frame loop for the first layout. */
+    void register(BlurLayout layout) {
+        if (mLayouts.contains(layout)) {
+            return;
+        }
+
+        mLayouts.add(layout);
+        if (!mRunning) {
+            mRunning = true;
+            mDirty = true;
+            postFrame(0);
+        }
+    }
+
+    /** Called by a layout when it is detached or stops using the backdrop. Stops the frame loop after the last layout. */
+    void unregister(BlurLayout layout) {
+        mLayouts.remove(layout);
+        if (mLayouts.isEmpty() && mRunning) {
+            mRunning = false;
+            removeFrame();
+        }
+    }
+
+    /** Posts {@link #mFrameCallback} to the Choreographer. Package-private so tests can stub it. */
+    void postFrame(long delayMillis) {
+        Choreographer.getInstance().postFrameCallbackDelayed(mFrameCallback, delayMillis);
+    }
+
+    /** Removes a posted {@link #mFrameCallback}. Package-private so tests can stub it. */
+    void removeFrame() {
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+    }
+
+    /** Captures and blurs the window into {@link #mBitmap}, with all registered layouts hidden. */
+    private void update() {
+        // Skip frames while BlurKit is released, see BlurKit.release().
+        if (!BlurKit.isInitialized()) {
+            return;
+        }
+
+        View screenView = mHostView.getRootView();
+        int width = (int) (screenView.getWidth() * mDownscaleFactor);
+        int height = (int) (screenView.getHeight() * mDownscaleFactor);
+        if (width <= 0 || height <= 0) {
+            return;
+        }
+
+        Bitmap.Config config = mBitmapConfig;
+        if (config == null) {
+            config = mStatic ? BlurKit.getConfigForView(screenView) : Bitmap.Config.ARGB_8888;
+        }
+        if (mBitmap == null || mBitmap.getWidth() != width || mBitmap.getHeight() != height || mBitmap.getConfig() != config) {
+            mBitmap = Bitmap.createBitmap(width, height, config);
+        } else {
+            mBitmap.eraseColor(Color.TRANSPARENT);
+        }
+
+        for (int i = 0; i < mLayouts.size(); i++) {
+            mLayouts.get(i).hideForCapture();
+        }
+
+        boolean captureTraced = BlurTrace.begin(BlurTrace.CAPTURE);
+        try {
+            Canvas canvas = new Canvas(mBitmap);
+            mMatrix.setScale(mDownscaleFactor, mDownscaleFactor);
+            canvas.setMatrix(mMatrix);
+            screenView.draw(canvas);
+        } finally {
+            BlurTrace.end(captureTraced);
+
+            for (int i = 0; i < mLayouts.size(); i++) {
+                mLayouts.get(i).showAfterCapture();
+            }
+        }
+
+        BlurKit.getInstance().blur(mBitmap, mBlurRadius);
+        mDirty = false;
+    }
+
+    /** The blurred window, or null before the first frame. */
+    Bitmap getBitmap() {
+        return mBitmap;
+    }
+
+    /** Captures and blurs the window again on the next frame. Needed after the content changes when static. */
+    public void invalidate() {
+        mDirty = true;
+
+        // Without a frame loop, schedule a single frame to pick up the change.
+        if (mRunning && mFPS <= 0) {
+            removeFrame();
+            postFrame(0);
+        }
+    }
+
+    /**
+     * Sets whether the content behind the layouts is static. A static backdrop is only blurred once, and
+     * again after {@link #invalidate()}; the layouts still follow their own positions every frame.
+     * See {@link #mStatic}.
+     */
+    public void setStatic(boolean isStatic) {
+        this.mStatic = isStatic;
+        mDirty = true;
+    }
+
+    /**
+     * Get the static value.
+     * See {@link #mStatic}.
+     */
+    public boolean isStatic() {
+        return mStatic;
+    }
+
+    /**
+     * Sets downscale factor to use pre-blur.
+     * See {@link #mDownscaleFactor}.
+     */
+    public void setDownscaleFactor(float downscaleFactor) {
+        this.mDownscaleFactor = downscaleFactor;
+        mDirty = true;
+    }
+
+    /**
+     * Get downscale factor.
+     * See {@link #mDownscaleFactor}.
+     */
+    public float getDownscaleFactor() {
+        return mDownscaleFactor;
+    }
+
+    /**
+     * Sets blur radius to use on downscaled bitmap.
+     * See {@link #mBlurRadius}.
+     */
+    public void setBlurRadius(int blurRadius) {
+        this.mBlurRadius = blurRadius;
+        mDirty = true;
+    }
+
+    /**
+     * Get blur radius to use on downscaled bitmap.
+     * See {@link #mBlurRadius}.
+     */
+    public int getBlurRadius() {
+        return mBlurRadius;
+    }
+
+    /**
+     * Sets the config of the blurred window bitmap. For an opaque window RGB_565 halves the memory
+     * of the kept bitmap, but blurring it goes through an ARGB_8888 copy, so it only pays off when
+     * static. Pass null to pick RGB_565 for an opaque static window and ARGB_8888 otherwise.
+     * See {@link #mBitmapConfig}.
+     */
+    public void setBitmapConfig(Bitmap.Config bitmapConfig) {
+        this.mBitmapConfig = bitmapConfig;
+        mDirty = true;
+    }
+
+    /**
+     * Get bitmap config, null when picked automatically.
+     * See {@link #mBitmapConfig}.
+     */
+    public Bitmap.Config getBitmapConfig() {
+        return mBitmapConfig;
+    }
+
+    /**
+     * Sets FPS to redraw the layouts and, unless static, re-blur the window.
+     * See {@link #mFPS}.
+     */
+    public void setFPS(int fps) {
+        this.mFPS = fps;
+
+        if (mRunning) {
+            removeFrame();
+            postFrame(0);
+        }
+    }
+
+    /**
+     * Get FPS value.
+     * See {@link #mFPS}.
+     */
+    public int getFPS() {
+        return mFPS;
+    }
+
+    /** Number of layouts currently drawing from this backdrop. */
+    public int getLayoutCount() {
+        return mLayouts.size();
+    }
+
+    /** Bytes held by the blurred window bitmap. */
+    public long getBitmapByteCount() {
+        return mBitmap != null && !mBitmap.isRecycled() ? mBitmap.getByteCount() : 0;
+    }
+
+    /** Drops the blurred window bitmap. It is re-created on the next frame. */
+    public void release() {
+        mBitmap = null;
+        mDirty = true;
+    }
+
+}
@@ -0,0 +1,174 @@
+package io.alterac.blurkit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.renderscript.Allocation;
+import android.renderscript.Element;
+import android.renderscript.RenderScript;
+import android.renderscript.ScriptIntrinsicBlur;
+
+/**
+ * A single RenderScript context with its blur scripts and re-usable allocations.
+ * Not thread safe, an engine must only be used by one thread at a time. See {@link BlurEnginePool}.
+ */
+class BlurEngine {
+
+    /** Largest radius the blur script supports. Larger radii are clamped to it. */
+    static final int MAX_RADIUS = 25;
+
+    private final RenderScript mRenderScript;
+
+    /** Blur script for 4 channel bitmaps (ARGB_8888). */
+    private final ScriptIntrinsicBlur mBlurScript;
+
+    /** Blur script for single channel bitmaps (ALPHA_8). Created on first use. */
+    private ScriptIntrinsicBlur mAlphaBlurScript;
+
+    /** Allocations kept from the last blur, re-used while the bitmap size and config stay the same. */
+    private Allocation mInput;
+    private Allocation mOutput;
+    private int mWidth;
+    private int mHeight;
+    private Bitmap.Config mConfig;
+
+    /**
+     * ARGB_8888 bitmap that configs without a matching blur element, like RGB_565, are drawn into
+     * before blurring and drawn back from after. Re-used while the size stays the same. This makes
+     * blurring RGB_565 cost more memory and bandwidth than blurring ARGB_8888.
+     */
+    private Bitmap mScratch;
+
+    /** Bytes held by the cached allocations and scratch bitmap. Read from other threads for memory reporting. */
+    private volatile int mAllocatedBytes;
+
+    BlurEngine(Context context) {
+        mRenderScript = RenderScript.create(context);
+        mBlurScript = ScriptIntrinsicBlur.create(mRenderScript, Element.U8_4(mRenderScript));
+    }
+
+    /**
+     * Blurs the bitmap in place and returns it. An immutable bitmap, like a decoded resource or a
+     * hardware bitmap, is left untouched and a blurred mutable copy of it is returned instead.
+     * A radius of 0 or less leaves the bitmap unblurred, radii above {@link #MAX_RADIUS} are clamped.
+     */
+    Bitmap blur(Bitmap src, int radius) {
+        if (radius <= 0) {
+            return src;
+        }
+
+        radius = Math.min(radius, MAX_RADIUS);
+        if (!src.isMutable()) {
+            src = src.copy(src.getConfig() == Bitmap.Config.ALPHA_8 ? Bitmap.Config.ALPHA_8 : Bitmap.Config.ARGB_8888, true);
+        }
+
+        Bitmap.Config config = src.getConfig();
+        if (config == Bitmap.Config.ARGB_8888) {
+            blurDirect(src, radius, mBlurScript);
+        } else if (config == Bitmap.Config.ALPHA_8) {
+            if (mAlphaBlurScript == null) {
+                mAlphaBlurScript = ScriptIntrinsicBlur.create(mRenderScript, Element.U8(mRenderScript));
+            }
+            blurDirect(src, radius, mAlphaBlurScript);
+        } else {
+            blurPromoted(src, radius);
+        }
+
+        return src;
+    }
+
+    private void blurDirect(Bitmap src, int radius, ScriptIntrinsicBlur script) {
+        if (mInput == null || mWidth != src.getWidth() || mHeight != src.getHeight() || mConfig != src.getConfig()) {
+            destroyAllocations();
+            // Script-only usage, so the allocation holds its own copy of the pixels instead of
+            // sharing them with src, which belongs to the caller once this blur returns.
+            mInput = Allocation.createFromBitmap(mRenderScript, src, Allocation.MipmapControl.MIPMAP_NONE, Allocation.USAGE_SCRIPT);
+            mOutput = Allocation.createTyped(mRenderScript, mInput.getType());
+            mWidth = src.getWidth();
+            mHeight = src.getHeight();
+            mConfig = src.getConfig();
+            updateAllocatedBytes();
+        } else {
+            mInput.copyFrom(src);
+        }
+
+        script.setRadius(radius);
+        script.setInput(mInput);
+        script.forEach(mOutput);
+        mOutput.copyTo(src);
+    }
+
+    /** Blurs a bitmap whose config the blur script can't read by going through {@link #mScratch}. */
+    private void blurPromoted(Bitmap src, int radius) {
+        if (mScratch == null || mScratch.getWidth() != src.getWidth() || mScratch.getHeight() != src.getHeight()) {
+            if (mScratch != null) {
+                mScratch.recycle();
+            }
+            mScratch = Bitmap.createBitmap(src.getWidth(), src.getHeight(), Bitmap.Config.ARGB_8888);
+            updateAllocatedBytes();
+        }
+
+        new Canvas(mScratch).drawBitmap(src, 0, 0, null);
+        blurDirect(mScratch, radius, mBlurScript);
+        new Canvas(src).drawBitmap(mScratch, 0, 0, null);
+    }
+
+    private void updateAllocatedBytes() {
+        int bytes = 0;
+        if (mInput != null) {
+            bytes += 2 * mInput.getType().getCount() * mInput.getElement().getBytesSize();
+        }
+
+        if (mScratch != null) {
+            bytes += mScratch.getByteCount();
+        }
+
+        mAllocatedBytes = bytes;
+    }
+
+    /** Frees the cached allocations and scratch bitmap, they are re-created on the next blur. */
+    private void destroyAllocations() {
+        if (mInput != null) {
+            mInput.destroy();
+            mInput = null;
+        }
+
+        if (mOutput != null) {
+            mOutput.destroy();
+            mOutput = null;
+        }
+
+        mWidth = 0;
+        mHeight = 0;
+        mConfig = null;
+        updateAllocatedBytes();
+    }
+
+    /** Frees the cached allocations and the scratch bitmap. */
+    void trim() {
+        destroyAllocations();
+
+        if (mScratch != null) {
+            mScratch.recycle();
+            mScratch = null;
+        }
+
+        updateAllocatedBytes();
+    }
+
+    /** Bytes of memory held by the cached allocations and scratch bitmap. */
+    int getAllocatedByteCount() {
+        return mAllocatedBytes;
+    }
+
+    /** Frees the allocations, the scripts and the RenderScript context. The engine can't be used after this. */
+    void destroy() {
+        trim();
+        mBlurScript.destroy();
+        if (mAlphaBlurScript != null) {
+            mAlphaBlurScript.destroy();
+        }
+        mRenderScript.destroy();
+    }
+
+}
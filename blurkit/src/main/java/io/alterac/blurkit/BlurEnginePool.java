@@ -0,0 +1,202 @@
+package io.alterac.blurkit;
+
+import android.content.Context;
+import android.os.Looper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of {@link BlurEngine}s. Engines are created lazily up to {@link #mMaxEngines}, so
+ * concurrent callers each get their own RenderScript context and blur in parallel. Once the limit is
+ * reached, callers wait for an engine to be released. The main thread has one more engine of its own,
+ * so on-screen blurs never wait behind background blurs holding the shared engines.
+ */
+class BlurEnginePool {
+
+    /** How long a waiting caller blocks before re-checking whether the pool was destroyed. */
+    private static final long WAIT_MILLIS = 100;
+
+    private final Context mContext;
+
+    /** Upper bound on engines, and therefore RenderScript contexts, this pool will create. */
+    private final int mMaxEngines;
+
+    /** Engines not currently in use, most recently released first. */
+    private final LinkedBlockingDeque<BlurEngine> mIdle = new LinkedBlockingDeque<>();
+
+    /** Engines created and not yet destroyed, idle or in use. Guarded by this. */
+    private final List<BlurEngine> mEngines = new ArrayList<>();
+
+    /** Engine reserved for the main thread, created on its first blur. Guarded by this. */
+    private BlurEngine mMainEngine;
+
+    /** Is {@link #mMainEngine} in use? Guarded by this. */
+    private boolean mMainEngineInUse;
+
+    /** Set by {@link #destroy()}. Engines released after this are destroyed instead of kept. Guarded by this. */
+    private boolean mDestroyed;
+
+    BlurEnginePool(Context context, int maxEngines) {
+        mContext = context;
+        mMaxEngines = Math.max(1, maxEngines);
+    }
+
+    /**
+     * Takes an idle engine, creating one if under the limit or waiting for one otherwise. The main
+     * thread gets its reserved engine instead.
+     */
+    BlurEngine acquire() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            return acquireMainEngine();
+        }
+
+        BlurEngine engine = mIdle.pollFirst();
+        if (engine != null) {
+            return engine;
+        }
+
+        synchronized (this) {
+            if (mDestroyed) {
+                throw new IllegalStateException("BlurKit has been released");
+            }
+
+            if (mEngines.size() < mMaxEngines) {
+                engine = new BlurEngine(mContext);
+                mEngines.add(engine);
+                return engine;
+            }
+        }
+
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    engine = mIdle.pollFirst(WAIT_MILLIS, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                    continue;
+                }
+
+                if (engine != null) {
+                    return engine;
+                }
+
+                synchronized (this) {
+                    if (mDestroyed) {
+                        throw new IllegalStateException("BlurKit has been released");
+                    }
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private synchronized BlurEngine acquireMainEngine() {
+        if (mDestroyed) {
+            throw new IllegalStateException("BlurKit has been released");
+        }
+
+        if (mMainEngine == null) {
+            mMainEngine = new BlurEngine(mContext);
+            mEngines.add(mMainEngine);
+        }
+
+        mMainEngineInUse = true;
+        return mMainEngine;
+    }
+
+    /** Returns an engine taken with {@link #acquire()}. */
+    void release(BlurEngine engine) {
+        // Offered under the same lock as the check, so destroy() can't drain the idle engines in between.
+        synchronized (this) {
+            if (engine == mMainEngine) {
+                mMainEngineInUse = false;
+                if (mDestroyed) {
+                    mEngines.remove(engine);
+                    mMainEngine = null;
+                    engine.destroy();
+                }
+                return;
+            }
+
+            if (mDestroyed) {
+                mEngines.remove(engine);
+                engine.destroy();
+                return;
+            }
+
+            mIdle.offerFirst(engine);
+        }
+    }
+
+    /**
+     * Frees memory held by idle engines. Engines in use are left alone.
+     * @param destroyEngines true to destroy idle RenderScript contexts, false to only drop their cached allocations.
+     */
+    void trim(boolean destroyEngines) {
+        List<BlurEngine> idle = new ArrayList<>();
+        mIdle.drainTo(idle);
+
+        synchronized (this) {
+            if (mMainEngine != null && !mMainEngineInUse) {
+                if (destroyEngines) {
+                    mEngines.remove(mMainEngine);
+                    mMainEngine.destroy();
+                    mMainEngine = null;
+                } else {
+                    mMainEngine.trim();
+                }
+            }
+        }
+
+        for (BlurEngine engine : idle) {
+            if (destroyEngines) {
+                synchronized (this) {
+                    mEngines.remove(engine);
+                }
+                engine.destroy();
+            } else {
+                engine.trim();
+                synchronized (this) {
+                    if (mDestroyed) {
+                        mEngines.remove(engine);
+                        engine.destroy();
+                    } else {
+                        mIdle.offerLast(engine);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Destroys all idle engines now and engines in use as soon as they are released. */
+    void destroy() {
+        synchronized (this) {
+            mDestroyed = true;
+        }
+
+        trim(true);
+    }
+
+    /** Bytes of native allocation memory cached by all engines, idle or in use. */
+    synchronized long getAllocatedByteCount() {
+        long bytes = 0;
+        for (BlurEngine engine : mEngines) {
+            bytes += engine.getAllocatedByteCount();
+        }
+
+        return bytes;
+    }
+
+    /** Upper bound on engines shared by threads other than the main thread. */
+    int getMaxEngines() {
+        return mMaxEngines;
+    }
+
+}
@@ -0,0 +1,210 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Debug ring buffer of the last frames produced by a {@link BlurLayout}: the captured and blurred
+ * bitmaps together with the parameters and stage timings of each frame. Dump it to disk with
+ * {@link #dumpTo(File)} to look at slow or wrong frames seen in the field. Copying the bitmaps costs
+ * memory and time on every frame, so only attach a recorder while debugging.
+ * See {@link BlurLayout#setFrameRecorder(BlurFrameRecorder)}.
+ */
+public class BlurFrameRecorder {
+
+    /** One recorded frame. */
+    public static class Frame {
+
+        /** Wall clock time the frame was recorded at, in milliseconds. */
+        public final long timestampMillis;
+
+        /** Copy of the downscaled capture before blurring, or null if it wasn't recorded. */
+        public final Bitmap captured;
+
+        /** Copy of the final blurred frame, or null if it wasn't recorded. */
+        public final Bitmap blurred;
+
+        public final int blurRadius;
+        public final float downscaleFactor;
+
+        public final long captureNanos;
+        public final long blurNanos;
+        public final long cropNanos;
+
+        Frame(long timestampMillis, Bitmap captured, Bitmap blurred, int blurRadius, float downscaleFactor,
+              long captureNanos, long blurNanos, long cropNanos) {
+            this.timestampMillis = timestampMillis;
+            this.captured = captured;
+            this.blurred = blurred;
+            this.blurRadius = blurRadius;
+            this.downscaleFactor = downscaleFactor;
+            this.captureNanos = captureNanos;
+            this.blurNanos = blurNanos;
+            this.cropNanos = cropNanos;
+        }
+
+    }
+
+    private final Frame[] mFrames;
+
+    /** Index the next frame is written to. */
+    private int mNext;
+
+    /** Number of frames currently held, up to the capacity. */
+    private int mCount;
+
+    /** Number of dumps in progress. */
+    private int mDumpCount;
+
+    /** Frames dropped while a dump was in progress, recycled once the last dump ends. */
+    private final List<Frame> mDropped = new ArrayList<>();
+
+    /**
+     * @param capacity Number of most recent frames to keep.
+     */
+    public BlurFrameRecorder(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+
+        mFrames = new Frame[capacity];
+    }
+
+    /** Adds a frame, dropping the oldest one once full. The recorder takes ownership of the bitmaps. */
+    synchronized void record(Bitmap captured, Bitmap blurred, int blurRadius, float downscaleFactor,
+                             long captureNanos, long blurNanos, long cropNanos) {
+        Frame oldest = mFrames[mNext];
+        if (oldest != null) {
+            drop(oldest);
+        }
+
+        mFrames[mNext] = new Frame(System.currentTimeMillis(), captured, blurred, blurRadius, downscaleFactor,
+                captureNanos, blurNanos, cropNanos);
+        mNext = (mNext + 1) % mFrames.length;
+        mCount = Math.min(mCount + 1, mFrames.length);
+    }
+
+    /** The recorded frames, oldest first. The bitmaps stay owned by the recorder. */
+    public synchronized List<Frame> getFrames() {
+        List<Frame> frames = new ArrayList<>(mCount);
+        int first = (mNext - mCount + mFrames.length) % mFrames.length;
+        for (int i = 0; i < mCount; i++) {
+            frames.add(mFrames[(first + i) % mFrames.length]);
+        }
+
+        return frames;
+    }
+
+    public int getCapacity() {
+        return mFrames.length;
+    }
+
+    /**
+     * Writes the recorded frames into directory: a PNG for each captured and blurred bitmap and a
+     * frames.txt listing the parameters and timings of each frame, oldest first. Frames keep being
+     * recorded while the files are written.
+     */
+    public void dumpTo(File directory) throws IOException {
+        List<Frame> frames;
+        synchronized (this) {
+            frames = getFrames();
+            mDumpCount++;
+        }
+
+        try {
+            writeFrames(frames, directory);
+        } finally {
+            synchronized (this) {
+                mDumpCount--;
+                if (mDumpCount == 0) {
+                    for (Frame frame : mDropped) {
+                        recycle(frame);
+                    }
+                    mDropped.clear();
+                }
+            }
+        }
+    }
+
+    private static void writeFrames(List<Frame> frames, File directory) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Unable to create " + directory);
+        }
+
+        Writer writer = new FileWriter(new File(directory, "frames.txt"));
+        try {
+            writer.write("index\ttimestampMillis\tblurRadius\tdownscaleFactor\tcaptureMs\tblurMs\tcropMs\n");
+            for (int i = 0; i < frames.size(); i++) {
+                Frame frame = frames.get(i);
+                writer.write(String.format(Locale.US, "%d\t%d\t%d\t%.3f\t%.3f\t%.3f\t%.3f\n",
+                        i,
+                        frame.timestampMillis,
+                        frame.blurRadius,
+                        frame.downscaleFactor,
+                        frame.captureNanos / 1e6,
+                        frame.blurNanos / 1e6,
+                        frame.cropNanos / 1e6));
+
+                writeBitmap(frame.captured, new File(directory, "frame_" + i + "_captured.png"));
+                writeBitmap(frame.blurred, new File(directory, "frame_" + i + "_blurred.png"));
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /** Drops and recycles all recorded frames. */
+    public synchronized void clear() {
+        for (int i = 0; i < mFrames.length; i++) {
+            if (mFrames[i] != null) {
+                drop(mFrames[i]);
+                mFrames[i] = null;
+            }
+        }
+
+        mNext = 0;
+        mCount = 0;
+    }
+
+    /** Recycles a frame that is no longer held, unless a dump may still be writing it. */
+    private void drop(Frame frame) {
+        if (mDumpCount > 0) {
+            mDropped.add(frame);
+        } else {
+            recycle(frame);
+        }
+    }
+
+    private static void writeBitmap(Bitmap bitmap, File file) throws IOException {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+
+        OutputStream out = new FileOutputStream(file);
+        try {
+            bitmap.compress(Bitmap.CompressFormat.PNG, 100, out);
+        } finally {
+            out.close();
+        }
+    }
+
+    private static void recycle(Frame frame) {
+        if (frame.captured != null) {
+            frame.captured.recycle();
+        }
+
+        if (frame.blurred != null) {
+            frame.blurred.recycle();
+        }
+    }
+
+}
@@ -0,0 +1,354 @@
+package io.alterac.blurkit;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Blurs a stream of camera or video frames in YUV without converting them to a {@link android.graphics.Bitmap}
+ * first. Each submitted frame is box-downsampled straight from its Y, U and V planes into small re-used
+ * planes on the calling thread, then blurred plane by plane and converted to ARGB on a worker thread.
+ * Only one frame is in flight at a time: frames submitted while the previous one is still being blurred
+ * or consumed by the {@link Listener} are dropped, so memory stays bounded and a slow consumer never
+ * builds up a queue.
+ */
+public class BlurFrameStream {
+
+    /** Receives blurred frames on the worker thread. */
+    public interface Listener {
+
+        /**
+         * Called with the blurred frame in ARGB. The array is re-used for the next frame, so copy it
+         * (for example with {@link android.graphics.Bitmap#setPixels}) before returning. No new frame is
+         * accepted until this returns.
+         */
+        void onFrameBlurred(int[] argb, int width, int height, long timestampNanos);
+
+    }
+
+    /** Number of box blur passes used to approximate a gaussian blur. */
+    private static final int BOX_PASSES = 3;
+
+    private final int mWidth;
+    private final int mHeight;
+
+    /** Pixels of the source frame averaged into each output pixel, in each direction. */
+    private final int mStep;
+
+    private final int mOutWidth;
+    private final int mOutHeight;
+    private final int mChromaWidth;
+    private final int mChromaHeight;
+
+    private final int mLumaBoxRadius;
+    private final int mChromaBoxRadius;
+
+    /** Downscaled planes, written on submit and blurred in place on the worker. */
+    private final byte[] mY;
+    private final byte[] mU;
+    private final byte[] mV;
+
+    /** Source row bulk-read from a plane while downsampling, grown as needed. */
+    private byte[] mRow;
+
+    /** Sums of the source pixels averaged into each pixel of the output row being downsampled. */
+    private final int[] mRowSums;
+
+    /** Scratch row/column sums for the box blur. */
+    private final int[] mBlurBuffer;
+
+    /** Re-used output handed to the listener. */
+    private final int[] mOutput;
+
+    private final Listener mListener;
+
+    private final ExecutorService mExecutor;
+
+    /** Set while a frame is being downsampled, blurred or consumed. */
+    private final AtomicBoolean mBusy = new AtomicBoolean();
+
+    private final AtomicLong mSubmittedCount = new AtomicLong();
+    private final AtomicLong mDroppedCount = new AtomicLong();
+    private final AtomicLong mBlurredCount = new AtomicLong();
+
+    private long mTimestampNanos;
+
+    private volatile boolean mClosed;
+
+    private final Runnable mBlurTask = new Runnable() {
+        @Override
+        public void run() {
+            try {
+                blurPlanes();
+                mListener.onFrameBlurred(mOutput, mOutWidth, mOutHeight, mTimestampNanos);
+                mBlurredCount.incrementAndGet();
+            } finally {
+                mBusy.set(false);
+            }
+        }
+    };
+
+    /**
+     * @param width Width of the source frames.
+     * @param height Height of the source frames.
+     * @param downscaleFactor Factor to scale the frames with before blurring, like {@link BlurLayout#setDownscaleFactor(float)}.
+     *                        Rounded to a whole number of source pixels per output pixel.
+     * @param radius Blur radius in downscaled pixels, like {@link BlurKit#blur(android.graphics.Bitmap, int)}.
+     * @param listener Receives the blurred frames.
+     */
+    public BlurFrameStream(int width, int height, float downscaleFactor, int radius, Listener listener) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Frame width and height must be positive");
+        }
+
+        if (downscaleFactor <= 0 || downscaleFactor > 1) {
+            throw new IllegalArgumentException("Downscale factor must be in (0, 1]");
+        }
+
+        mWidth = width;
+        mHeight = height;
+        mStep = Math.max(1, Math.round(1 / downscaleFactor));
+        mOutWidth = Math.max(1, width / mStep);
+        mOutHeight = Math.max(1, height / mStep);
+        mChromaWidth = (mOutWidth + 1) / 2;
+        mChromaHeight = (mOutHeight + 1) / 2;
+        mLumaBoxRadius = getBoxRadius(radius);
+        mChromaBoxRadius = getBoxRadius(radius / 2f);
+
+        mY = new byte[mOutWidth * mOutHeight];
+        mU = new byte[mChromaWidth * mChromaHeight];
+        mV = new byte[mChromaWidth * mChromaHeight];
+        mRow = new byte[width];
+        mRowSums = new int[mOutWidth];
+        mBlurBuffer = new int[mOutWidth * mOutHeight];
+        mOutput = new int[mOutWidth * mOutHeight];
+        mListener = listener;
+
+        mExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BlurFrameStream");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Submits an NV21 frame, the default camera preview format. The buffer is only read during this call
+     * and can be re-used right after.
+     * @return false if the frame was dropped because the previous one is still in flight.
+     */
+    public boolean submitNv21(ByteBuffer nv21, long timestampNanos) {
+        int base = nv21.position();
+        int lumaSize = mWidth * mHeight;
+        if (nv21.limit() - base < lumaSize + 2 * ((mWidth + 1) / 2) * ((mHeight + 1) / 2)) {
+            throw new IllegalArgumentException("NV21 buffer is too small for " + mWidth + "x" + mHeight);
+        }
+
+        return submit(nv21, base, mWidth, nv21, base + lumaSize + 1, nv21, base + lumaSize, mWidth, 2, timestampNanos);
+    }
+
+    /**
+     * Submits a YUV_420_888 frame from its three planes, as returned by {@link android.media.Image#getPlanes()}.
+     * The buffers are only read during this call and can be re-used right after.
+     * @return false if the frame was dropped because the previous one is still in flight.
+     */
+    public boolean submitYuv420(ByteBuffer y, ByteBuffer u, ByteBuffer v, int yRowStride, int uvRowStride,
+                                int uvPixelStride, long timestampNanos) {
+        return submit(y, y.position(), yRowStride, u, u.position(), v, v.position(), uvRowStride, uvPixelStride, timestampNanos);
+    }
+
+    private boolean submit(ByteBuffer y, int yOffset, int yRowStride, ByteBuffer u, int uOffset, ByteBuffer v,
+                           int vOffset, int uvRowStride, int uvPixelStride, long timestampNanos) {
+        if (mClosed) {
+            throw new IllegalStateException("BlurFrameStream is closed");
+        }
+
+        mSubmittedCount.incrementAndGet();
+        if (!mBusy.compareAndSet(false, true)) {
+            mDroppedCount.incrementAndGet();
+            return false;
+        }
+
+        try {
+            downsample(y, yOffset, yRowStride, 1, mWidth, mHeight, mY, mOutWidth, mOutHeight);
+            int chromaWidth = (mWidth + 1) / 2;
+            int chromaHeight = (mHeight + 1) / 2;
+            downsample(u, uOffset, uvRowStride, uvPixelStride, chromaWidth, chromaHeight, mU, mChromaWidth, mChromaHeight);
+            downsample(v, vOffset, uvRowStride, uvPixelStride, chromaWidth, chromaHeight, mV, mChromaWidth, mChromaHeight);
+            mTimestampNanos = timestampNanos;
+            mExecutor.execute(mBlurTask);
+        } catch (RuntimeException e) {
+            mBusy.set(false);
+            throw e;
+        }
+
+        return true;
+    }
+
+    /**
+     * Averages mStep x mStep blocks of a source plane into each pixel of dst. Each source row is read
+     * with one bulk get into {@link #mRow}; reading byte by byte is too slow for the camera thread.
+     */
+    private void downsample(ByteBuffer src, int offset, int rowStride, int pixelStride, int srcWidth, int srcHeight,
+                            byte[] dst, int dstWidth, int dstHeight) {
+        // A duplicate, so the caller's buffer position is left alone.
+        ByteBuffer buffer = src.duplicate();
+        int rowLength = (srcWidth - 1) * pixelStride + 1;
+        if (mRow.length < rowLength) {
+            mRow = new byte[rowLength];
+        }
+        byte[] row = mRow;
+
+        for (int dy = 0; dy < dstHeight; dy++) {
+            int top = Math.min(dy * mStep, srcHeight - 1);
+            int bottom = Math.min(top + mStep, srcHeight);
+            Arrays.fill(mRowSums, 0, dstWidth, 0);
+
+            for (int sy = top; sy < bottom; sy++) {
+                buffer.position(offset + sy * rowStride);
+                buffer.get(row, 0, rowLength);
+
+                for (int dx = 0; dx < dstWidth; dx++) {
+                    int left = Math.min(dx * mStep, srcWidth - 1);
+                    int right = Math.min(left + mStep, srcWidth);
+
+                    int sum = 0;
+                    for (int sx = left; sx < right; sx++) {
+                        sum += row[sx * pixelStride] & 0xff;
+                    }
+                    mRowSums[dx] += sum;
+                }
+            }
+
+            for (int dx = 0; dx < dstWidth; dx++) {
+                int left = Math.min(dx * mStep, srcWidth - 1);
+                int right = Math.min(left + mStep, srcWidth);
+                int count = (bottom - top) * (right - left);
+                dst[dy * dstWidth + dx] = (byte) ((mRowSums[dx] + count / 2) / count);
+            }
+        }
+    }
+
+    /** Blurs the downscaled planes and converts them into {@link #mOutput}. */
+    private void blurPlanes() {
+        for (int i = 0; i < BOX_PASSES; i++) {
+            boxBlur(mY, mBlurBuffer, mOutWidth, mOutHeight, mLumaBoxRadius);
+            boxBlur(mU, mBlurBuffer, mChromaWidth, mChromaHeight, mChromaBoxRadius);
+            boxBlur(mV, mBlurBuffer, mChromaWidth, mChromaHeight, mChromaBoxRadius);
+        }
+
+        for (int y = 0; y < mOutHeight; y++) {
+            for (int x = 0; x < mOutWidth; x++) {
+                int chroma = (y / 2) * mChromaWidth + x / 2;
+                mOutput[y * mOutWidth + x] = yuvToArgb(mY[y * mOutWidth + x] & 0xff, mU[chroma] & 0xff, mV[chroma] & 0xff);
+            }
+        }
+    }
+
+    /**
+     * One horizontal and one vertical box blur pass of the given radius over a plane, in place, using
+     * running sums so the cost doesn't depend on the radius. Edges are clamped.
+     */
+    static void boxBlur(byte[] plane, int[] buffer, int width, int height, int radius) {
+        if (radius <= 0) {
+            return;
+        }
+
+        int size = 2 * radius + 1;
+
+        for (int y = 0; y < height; y++) {
+            int row = y * width;
+            int sum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                sum += plane[row + clamp(i, width)] & 0xff;
+            }
+
+            for (int x = 0; x < width; x++) {
+                buffer[row + x] = sum;
+                sum += (plane[row + clamp(x + radius + 1, width)] & 0xff) - (plane[row + clamp(x - radius, width)] & 0xff);
+            }
+        }
+
+        // The vertical pass sums the horizontal sums, so divide by size * size once at the end.
+        int divisor = size * size;
+        for (int x = 0; x < width; x++) {
+            int sum = 0;
+            for (int i = -radius; i <= radius; i++) {
+                sum += buffer[clamp(i, height) * width + x];
+            }
+
+            for (int y = 0; y < height; y++) {
+                plane[y * width + x] = (byte) ((sum + divisor / 2) / divisor);
+                sum += buffer[clamp(y + radius + 1, height) * width + x] - buffer[clamp(y - radius, height) * width + x];
+            }
+        }
+    }
+
+    private static int clamp(int index, int size) {
+        return index < 0 ? 0 : index >= size ? size - 1 : index;
+    }
+
+    /**
+     * Box radius that, applied {@link #BOX_PASSES} times, approximates the gaussian RenderScript uses
+     * for the given blur radius.
+     */
+    static int getBoxRadius(float radius) {
+        if (radius <= 0) {
+            return 0;
+        }
+
+        double sigma = 0.4 * radius + 0.6;
+        double boxWidth = Math.sqrt(12 * sigma * sigma / BOX_PASSES + 1);
+        return Math.max(1, (int) Math.round((boxWidth - 1) / 2));
+    }
+
+    /** Full range BT.601 conversion, as used by camera NV21 frames. */
+    static int yuvToArgb(int y, int u, int v) {
+        int d = u - 128;
+        int e = v - 128;
+        int r = y + ((359 * e) >> 8);
+        int g = y - ((88 * d + 183 * e) >> 8);
+        int b = y + ((454 * d) >> 8);
+        return 0xff000000 | (clampColor(r) << 16) | (clampColor(g) << 8) | clampColor(b);
+    }
+
+    private static int clampColor(int value) {
+        return value < 0 ? 0 : value > 255 ? 255 : value;
+    }
+
+    public int getOutputWidth() {
+        return mOutWidth;
+    }
+
+    public int getOutputHeight() {
+        return mOutHeight;
+    }
+
+    /** Frames passed to one of the submit methods. */
+    public long getSubmittedCount() {
+        return mSubmittedCount.get();
+    }
+
+    /** Frames dropped because the previous frame was still in flight. */
+    public long getDroppedCount() {
+        return mDroppedCount.get();
+    }
+
+    /** Frames blurred and delivered to the listener. */
+    public long getBlurredCount() {
+        return mBlurredCount.get();
+    }
+
+    /** Stops the worker thread. A frame in flight is still delivered. */
+    public void close() {
+        mClosed = true;
+        mExecutor.shutdown();
+    }
+
+}
@@ -1,82 +1,473 @@
 package io.alterac.blurkit;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
 import android.graphics.Canvas;
 import android.graphics.Matrix;
+import android.graphics.Paint;
+import android.graphics.PixelFormat;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
 import android.view.View;
-import android.renderscript.Allocation;
-import android.renderscript.Element;
-import android.renderscript.RenderScript;
-import android.renderscript.ScriptIntrinsicBlur;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.Callable;
+
+/**
+ * Blurring utilities backed by RenderScript. Safe to use from multiple threads: each call borrows a
+ * {@link BlurEngine} from a shared pool, so concurrent callers blur in parallel on separate
+ * RenderScript contexts.
+ */
 public class BlurKit {
 
     private static final float FULL_SCALE = 1f;
 
-    private static BlurKit instance;
+    /**
+     * Default number of RenderScript contexts. Each context runs its blurs on its own pool of worker
+     * threads, one per core, so a few contexts already keep every core busy.
+     */
+    public static final int DEFAULT_ENGINE_COUNT = 2;
+
+    private static volatile BlurKit instance;
+
+    private static volatile BlurEnginePool enginePool;
+
+    /** Application context the memory callbacks are registered with, kept to unregister on release. */
+    private static Context appContext;
+
+    /** Forwards system memory pressure to {@link #trimMemory(int)}. */
+    private static final ComponentCallbacks2 memoryCallbacks = new ComponentCallbacks2() {
+        @Override
+        public void onTrimMemory(int level) {
+            trimMemory(level);
+        }
+
+        @Override
+        public void onLowMemory() {
+            trimMemory(TRIM_MEMORY_COMPLETE);
+        }
+
+        @Override
+        public void onConfigurationChanged(Configuration newConfig) {
+        }
+    };
 
-    private static RenderScript rs;
+    private static final BitmapPool bitmapPool = new BitmapPool(BitmapPool.DEFAULT_MAX_BYTES);
 
     public static void init(Context context) {
+        init(context, DEFAULT_ENGINE_COUNT);
+    }
+
+    /**
+     * Initializes BlurKit with at most engineCount RenderScript contexts shared by background threads.
+     * This is the number of background blurs that can run at the same time, further callers wait for a
+     * context to free up. The main thread has one more context of its own, so {@link BlurLayout} frames
+     * never wait behind background blurs. Raise it above
+     * {@link #DEFAULT_ENGINE_COUNT} only when many small blurs run concurrently.
+     */
+    public static void init(Context context, int engineCount) {
         if (instance != null) {
             return;
         }
 
-        instance = new BlurKit();
-        rs = RenderScript.create(context.getApplicationContext());
+        synchronized (BlurKit.class) {
+            if (instance != null) {
+                return;
+            }
+
+            appContext = context.getApplicationContext();
+            appContext.registerComponentCallbacks(memoryCallbacks);
+            enginePool = new BlurEnginePool(appContext, engineCount);
+            instance = new BlurKit();
+        }
+    }
+
+    /**
+     * Destroys all RenderScript contexts and pooled bitmaps. Blurs already running finish first.
+     * {@link #init(Context)} must be called again before BlurKit can be used. Attached
+     * {@link BlurLayout}s and {@link BlurBackdrop}s skip their frames until then.
+     */
+    public static void release() {
+        synchronized (BlurKit.class) {
+            if (enginePool != null) {
+                enginePool.destroy();
+                enginePool = null;
+            }
+
+            if (appContext != null) {
+                appContext.unregisterComponentCallbacks(memoryCallbacks);
+                appContext = null;
+            }
+
+            bitmapPool.clear();
+            instance = null;
+        }
+    }
+
+    /**
+     * Frees cached memory according to a {@link ComponentCallbacks2} trim level. Called automatically
+     * once initialized, but can also be forwarded manually.
+     * Moderate pressure halves the bitmap pool, low pressure also drops cached allocations, and
+     * critical pressure or a backgrounded app destroys idle RenderScript contexts.
+     */
+    public static void trimMemory(int level) {
+        BlurEnginePool pool = enginePool;
+
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND
+                || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            bitmapPool.clear();
+            if (pool != null) {
+                pool.trim(true);
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            bitmapPool.clear();
+            if (pool != null) {
+                pool.trim(false);
+            }
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            bitmapPool.trimTo(bitmapPool.getByteCount() / 2);
+        }
+    }
+
+    /** Bytes of native RenderScript allocation memory currently cached by BlurKit. */
+    public static long getNativeByteCount() {
+        BlurEnginePool pool = enginePool;
+        return pool != null ? pool.getAllocatedByteCount() : 0;
+    }
+
+    /** Bytes held by idle bitmaps in BlurKit's pool. Bitmaps handed out to callers are not counted. */
+    public static long getBitmapByteCount() {
+        return bitmapPool.getByteCount();
     }
 
     public Bitmap blur(Bitmap src, int radius) {
-        final Allocation input = Allocation.createFromBitmap(rs, src);
-        final Allocation output = Allocation.createTyped(rs, input.getType());
-        final ScriptIntrinsicBlur script = ScriptIntrinsicBlur.create(rs, Element.U8_4(rs));
-        script.setRadius(radius);
-        script.setInput(input);
-        script.forEach(output);
-        output.copyTo(src);
-        return src;
+        BlurEnginePool pool = enginePool;
+        if (pool == null) {
+            throw new RuntimeException("BlurKit not initialized!");
+        }
+
+        boolean blurTraced = BlurTrace.begin(BlurTrace.BLUR);
+        BlurEngine engine = null;
+        try {
+            engine = pool.acquire();
+            return engine.blur(src, radius);
+        } finally {
+            if (engine != null) {
+                pool.release(engine);
+            }
+            BlurTrace.end(blurTraced);
+        }
     }
 
     public Bitmap blur(View src, int radius) {
-        Bitmap bitmap = getBitmapForView(src);
+        Bitmap bitmap = getBitmapForView(src, Bitmap.Config.ARGB_8888);
+        return blur(bitmap, radius);
+    }
+
+    /**
+     * Blurs a view into a bitmap of the given config. Pass null to pick one with {@link #getConfigForView(View)}.
+     */
+    public Bitmap blur(View src, int radius, Bitmap.Config config) {
+        Bitmap bitmap = getBitmapForView(src, config != null ? config : getConfigForView(src));
         return blur(bitmap, radius);
     }
 
     public Bitmap fastBlur(View src, int radius, float downscaleFactor) {
-        Bitmap bitmap = getBitmapForView(src, downscaleFactor);
+        Bitmap bitmap = getBitmapForView(src, downscaleFactor, Bitmap.Config.ARGB_8888);
         return blur(bitmap, radius);
     }
 
-    private Bitmap getBitmapForView(View src, float downscaleFactor) {
+    /**
+     * Fast blurs a view into a bitmap of the given config. Pass null to pick one with {@link #getConfigForView(View)}.
+     */
+    public Bitmap fastBlur(View src, int radius, float downscaleFactor, Bitmap.Config config) {
+        Bitmap bitmap = getBitmapForView(src, downscaleFactor, config != null ? config : getConfigForView(src));
+        return blur(bitmap, radius);
+    }
+
+    /**
+     * Picks {@link Bitmap.Config#RGB_565} when the view draws fully opaque content, which halves
+     * the memory of the captured bitmap, or {@link Bitmap.Config#ARGB_8888} otherwise. The blur
+     * itself has no RGB_565 path and goes through an ARGB_8888 copy, so RGB_565 only pays off for
+     * bitmaps that are kept around after one blur, not for bitmaps blurred again every frame.
+     */
+    public static Bitmap.Config getConfigForView(View view) {
+        if (view.isOpaque()) {
+            return Bitmap.Config.RGB_565;
+        }
+
+        Drawable background = view.getBackground();
+        if (background != null && background.getOpacity() == PixelFormat.OPAQUE) {
+            return Bitmap.Config.RGB_565;
+        }
+
+        return Bitmap.Config.ARGB_8888;
+    }
+
+    /**
+     * Copies a blurred bitmap into an immutable hardware bitmap, which is cheaper to draw and lives
+     * in graphics memory only. Returns the bitmap unchanged before Android O or if the copy fails.
+     * The original bitmap is left untouched.
+     */
+    public static Bitmap toHardwareBitmap(Bitmap bitmap) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O || bitmap.getConfig() == Bitmap.Config.HARDWARE) {
+            return bitmap;
+        }
+
+        Bitmap hardware = bitmap.copy(Bitmap.Config.HARDWARE, false);
+        return hardware != null ? hardware : bitmap;
+    }
+
+    /**
+     * Pre-blurs src at levelCount radii evenly spaced between fromRadius and toRadius, for animating
+     * the blur radius by cross-fading instead of re-blurring every frame. A radius of 0 keeps an
+     * unblurred copy. src itself is not modified.
+     */
+    public BlurTransition createTransition(Bitmap src, int fromRadius, int toRadius, int levelCount) {
+        int[] radii = BlurTransition.getLevelRadii(fromRadius, toRadius, levelCount);
+        Bitmap[] levels = new Bitmap[radii.length];
+        for (int i = 0; i < radii.length; i++) {
+            levels[i] = src.copy(src.getConfig(), true);
+            if (radii[i] > 0) {
+                blur(levels[i], radii[i]);
+            }
+        }
+
+        return new BlurTransition(radii, levels);
+    }
+
+    /**
+     * Blurs the bitmap in place on the {@link BlurScheduler#getDefault() default scheduler}.
+     * @param priority Priority class of the blur.
+     * @param deadlineMillis Milliseconds from now after which the blur is dropped if it hasn't started, or {@link BlurScheduler#NO_DEADLINE}.
+     * @param key A new blur with an equal key cancels this one if it hasn't finished, or null.
+     * @param callback Receives the blurred bitmap on a worker thread.
+     */
+    public BlurScheduler.Job<Bitmap> blurAsync(final Bitmap src, final int radius, BlurScheduler.Priority priority,
+                                               long deadlineMillis, Object key, BlurScheduler.Callback<Bitmap> callback) {
+        return BlurScheduler.getDefault().submit(priority, deadlineMillis, key, new Callable<Bitmap>() {
+            @Override
+            public Bitmap call() {
+                return blur(src, radius);
+            }
+        }, callback);
+    }
+
+    /**
+     * Creates a stream that blurs camera or video frames straight from their YUV planes at reduced
+     * resolution. See {@link BlurFrameStream}.
+     */
+    public BlurFrameStream createFrameStream(int width, int height, float downscaleFactor, int radius,
+                                             BlurFrameStream.Listener listener) {
+        return new BlurFrameStream(width, height, downscaleFactor, radius, listener);
+    }
+
+    /**
+     * Decodes an image file directly at a subsampled size and blurs it.
+     * The full resolution image is never decoded.
+     * @return Blurred bitmap of exactly width x height, center-cropped if the aspect ratio differs. Hand it back with {@link #releaseBitmap(Bitmap)} when done.
+     * @throws BlurKitException if the file can't be decoded.
+     */
+    public Bitmap blur(File src, int width, int height, int radius) throws BlurKitException {
+        return decodeAndBlur(src.getAbsolutePath(), null, width, height, radius);
+    }
+
+    /**
+     * Decodes an encoded image stream directly at a subsampled size and blurs it.
+     * The stream is read fully but not closed.
+     * @return Blurred bitmap of exactly width x height, center-cropped if the aspect ratio differs. Hand it back with {@link #releaseBitmap(Bitmap)} when done.
+     * @throws BlurKitException if the stream can't be read or decoded.
+     */
+    public Bitmap blur(InputStream src, int width, int height, int radius) throws BlurKitException {
+        byte[] data;
+        try {
+            data = readFully(src);
+        } catch (IOException e) {
+            throw new BlurKitException("Unable to read image stream", e);
+        }
+
+        return decodeAndBlur(null, data, width, height, radius);
+    }
+
+    /**
+     * Decodes an encoded image buffer directly at a subsampled size and blurs it.
+     * @return Blurred bitmap of exactly width x height, center-cropped if the aspect ratio differs. Hand it back with {@link #releaseBitmap(Bitmap)} when done.
+     * @throws BlurKitException if the buffer can't be decoded.
+     */
+    public Bitmap blur(byte[] src, int width, int height, int radius) throws BlurKitException {
+        return decodeAndBlur(null, src, width, height, radius);
+    }
+
+    /**
+     * Returns a bitmap from one of the decoding blur methods to the pool so later calls can re-use it.
+     * The bitmap must not be used after this call.
+     */
+    public void releaseBitmap(Bitmap bitmap) {
+        bitmapPool.put(bitmap);
+    }
+
+    /**
+     * Decodes from either a file path or a byte array using inSampleSize, scales the result to the
+     * exact target size into a pooled bitmap and blurs it.
+     */
+    private Bitmap decodeAndBlur(String path, byte[] data, int width, int height, int radius) throws BlurKitException {
+        if (width <= 0 || height <= 0) {
+            throw new BlurKitException("Target width and height must be positive");
+        }
+
+        Bitmap bitmap;
+        boolean decodeTraced = BlurTrace.begin(BlurTrace.DECODE);
+        try {
+            bitmap = decodeSampled(path, data, width, height);
+        } finally {
+            BlurTrace.end(decodeTraced);
+        }
+
+        return blur(bitmap, radius);
+    }
+
+    /**
+     * Decodes at the largest power of two sample size that still covers the target, then scales to exactly
+     * the target size. When the aspect ratios differ, the image is center-cropped rather than stretched.
+     */
+    private Bitmap decodeSampled(String path, byte[] data, int width, int height) throws BlurKitException {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        decode(path, data, options);
+
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            throw new BlurKitException("Unable to decode image bounds");
+        }
+
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = calculateInSampleSize(options.outWidth, options.outHeight, width, height);
+        // JPEGs can't carry alpha, so decode them at half the memory.
+        Bitmap.Config config = "image/jpeg".equals(options.outMimeType) ? Bitmap.Config.RGB_565 : Bitmap.Config.ARGB_8888;
+        options.inPreferredConfig = config;
+        // Mutable, so a decode that already has the target size is blurred in place without another copy.
+        options.inMutable = true;
+
+        Bitmap decoded = decode(path, data, options);
+        if (decoded == null) {
+            throw new BlurKitException("Unable to decode image");
+        }
+
+        Bitmap bitmap;
+        if (decoded.getWidth() == width && decoded.getHeight() == height && decoded.isMutable()) {
+            bitmap = decoded;
+        } else {
+            bitmap = bitmapPool.get(width, height, config);
+            Canvas canvas = new Canvas(bitmap);
+            canvas.drawBitmap(decoded, getCenterCrop(decoded.getWidth(), decoded.getHeight(), width, height),
+                    new Rect(0, 0, width, height), new Paint(Paint.FILTER_BITMAP_FLAG));
+            decoded.recycle();
+        }
+
+        return bitmap;
+    }
+
+    /** Largest centered region of a srcWidth x srcHeight image with the aspect ratio of width x height. */
+    private static Rect getCenterCrop(int srcWidth, int srcHeight, int width, int height) {
+        if ((long) srcWidth * height > (long) srcHeight * width) {
+            int cropWidth = (int) ((long) srcHeight * width / height);
+            int left = (srcWidth - cropWidth) / 2;
+            return new Rect(left, 0, left + cropWidth, srcHeight);
+        }
+
+        int cropHeight = (int) ((long) srcWidth * height / width);
+        int top = (srcHeight - cropHeight) / 2;
+        return new Rect(0, top, srcWidth, top + cropHeight);
+    }
+
+    private static Bitmap decode(String path, byte[] data, BitmapFactory.Options options) {
+        if (data != null) {
+            return BitmapFactory.decodeByteArray(data, 0, data.length, options);
+        }
+
+        return BitmapFactory.decodeFile(path, options);
+    }
+
+    private static byte[] readFully(InputStream stream) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[16 * 1024];
+        int read;
+        while ((read = stream.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+
+        return out.toByteArray();
+    }
+
+    /**
+     * Largest power of two sample size that keeps the decoded image at least as big as the target
+     * in both dimensions, so the final scale only ever shrinks.
+     */
+    static int calculateInSampleSize(int srcWidth, int srcHeight, int reqWidth, int reqHeight) {
+        int inSampleSize = 1;
+        while (srcWidth / (inSampleSize * 2) >= reqWidth && srcHeight / (inSampleSize * 2) >= reqHeight) {
+            inSampleSize *= 2;
+        }
+
+        return inSampleSize;
+    }
+
+    private Bitmap getBitmapForView(View src, float downscaleFactor, Bitmap.Config config) {
         Bitmap bitmap = Bitmap.createBitmap(
                 (int) (src.getWidth() * downscaleFactor),
                 (int) (src.getHeight() * downscaleFactor),
-                Bitmap.Config.ARGB_8888
+                config
         );
 
-        Canvas canvas = new Canvas(bitmap);
-        Matrix matrix = new Matrix();
-        matrix.preScale(downscaleFactor, downscaleFactor);
-        canvas.setMatrix(matrix);
-        src.draw(canvas);
+        boolean captureTraced = BlurTrace.begin(BlurTrace.CAPTURE);
+        try {
+            Canvas canvas = new Canvas(bitmap);
+            Matrix matrix = new Matrix();
+            matrix.preScale(downscaleFactor, downscaleFactor);
+            canvas.setMatrix(matrix);
+            src.draw(canvas);
+        } finally {
+            BlurTrace.end(captureTraced);
+        }
 
         return bitmap;
     }
 
-    private Bitmap getBitmapForView(View src) {
+    private Bitmap getBitmapForView(View src, Bitmap.Config config) {
         Bitmap bitmap = Bitmap.createBitmap(
                 src.getWidth(),
                 src.getHeight(),
-                Bitmap.Config.ARGB_8888
+                config
         );
 
-        Canvas canvas = new Canvas(bitmap);
-        src.draw(canvas);
+        boolean captureTraced = BlurTrace.begin(BlurTrace.CAPTURE);
+        try {
+            Canvas canvas = new Canvas(bitmap);
+            src.draw(canvas);
+        } finally {
+            BlurTrace.end(captureTraced);
+        }
 
         return bitmap;
     }
 
+    /** Number of engines shared by background threads, or 0 when not initialized. */
+    static int getEngineCount() {
+        BlurEnginePool pool = enginePool;
+        return pool != null ? pool.getMaxEngines() : 0;
+    }
+
+    /** Has BlurKit been initialized and not released since? */
+    public static boolean isInitialized() {
+        return instance != null;
+    }
+
     public static BlurKit getInstance() {
         if (instance == null) {
             throw new RuntimeException("BlurKit not initialized!");
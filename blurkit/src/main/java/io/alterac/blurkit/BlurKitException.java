@@ -6,4 +6,8 @@ public class BlurKitException extends Exception {
         super(message);
     }
 
+    public BlurKitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
 }
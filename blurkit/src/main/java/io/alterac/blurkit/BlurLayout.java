@@ -1,11 +1,18 @@
 package io.alterac.blurkit;
 
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.TimeInterpolator;
+import android.animation.ValueAnimator;
 import android.app.Activity;
+import android.content.ComponentCallbacks2;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
+import android.graphics.Color;
 import android.graphics.Matrix;
+import android.graphics.Paint;
 import android.graphics.Point;
 import android.graphics.PointF;
 import android.graphics.Rect;
@@ -30,6 +37,13 @@ public class BlurLayout extends FrameLayout {
     public static final int DEFAULT_FPS = 60;
     public static final float DEFAULT_CORNER_RADIUS = 0.f;
     public static final float DEFAULT_ALPHA = Float.NaN;
+    public static final boolean DEFAULT_HARDWARE_BITMAP = false;
+    public static final int DEFAULT_TRANSITION_LEVELS = 4;
+
+    /** Values of the blk_bitmapConfig attribute. */
+    private static final int BITMAP_CONFIG_ARGB_8888 = 0;
+    private static final int BITMAP_CONFIG_RGB_565 = 1;
+    private static final int BITMAP_CONFIG_AUTO = 2;
 
     // Customizable attributes
 
@@ -48,6 +62,16 @@ public class BlurLayout extends FrameLayout {
     /** Alpha value to set transparency */
     private float mAlpha;
 
+    /**
+     * Config of the captured and blurred bitmaps. Null picks RGB_565 for opaque content where the
+     * blurred bitmap is kept, like a locked view, and ARGB_8888 where it is blurred every frame.
+     * See {@link BlurKit#getConfigForView(View)}.
+     */
+    private Bitmap.Config mBitmapConfig = Bitmap.Config.ARGB_8888;
+
+    /** Should blurred frames be converted to hardware bitmaps before being shown? */
+    private boolean mHardwareBitmap;
+
     /** Is blur running? */
     private boolean mRunning;
 
@@ -74,6 +98,32 @@ public class BlurLayout extends FrameLayout {
     /** A saved bitmap for the view to re-use when {@link #lockView()} called. */
     private Bitmap mLockedBitmap;
 
+    /** The last blurred frame shown in {@link #mImageView}. */
+    private Bitmap mLastFrame;
+
+    /** Pre-blurred levels of the activity view while a blur radius animation runs. See {@link #animateBlurRadius}. */
+    private BlurTransition mTransition;
+
+    /** Current, possibly fractional, radius of the running blur radius animation. */
+    private float mTransitionRadius;
+
+    /** Re-used bitmap the transition frames are drawn into. */
+    private Bitmap mTransitionFrame;
+
+    /** Running blur radius animation. */
+    private ValueAnimator mBlurAnimator;
+
+    /** Records recent frames for debugging when set. See {@link #setFrameRecorder(BlurFrameRecorder)}. */
+    private BlurFrameRecorder mFrameRecorder;
+
+    /** Shared backdrop this layout draws its region from instead of capturing itself. See {@link #setBackdrop(BlurBackdrop)}. */
+    private BlurBackdrop mBackdrop;
+
+    /** Re-used bitmap the backdrop region is drawn into. */
+    private Bitmap mBackdropFrame;
+
+    private final Paint mBackdropPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
     public BlurLayout(Context context) {
         super(context, null);
     }
@@ -96,6 +146,19 @@ public class BlurLayout extends FrameLayout {
             mFPS = a.getInteger(R.styleable.BlurLayout_blk_fps, DEFAULT_FPS);
             mCornerRadius = a.getDimension(R.styleable.BlurLayout_blk_cornerRadius, DEFAULT_CORNER_RADIUS);
             mAlpha = a.getDimension(R.styleable.BlurLayout_blk_alpha, DEFAULT_ALPHA);
+            mHardwareBitmap = a.getBoolean(R.styleable.BlurLayout_blk_hardwareBitmap, DEFAULT_HARDWARE_BITMAP);
+
+            switch (a.getInt(R.styleable.BlurLayout_blk_bitmapConfig, BITMAP_CONFIG_ARGB_8888)) {
+                case BITMAP_CONFIG_RGB_565:
+                    mBitmapConfig = Bitmap.Config.RGB_565;
+                    break;
+                case BITMAP_CONFIG_AUTO:
+                    mBitmapConfig = null;
+                    break;
+                default:
+                    mBitmapConfig = Bitmap.Config.ARGB_8888;
+                    break;
+            }
         } finally {
             a.recycle();
         }
@@ -118,6 +181,14 @@ public class BlurLayout extends FrameLayout {
 
     /** Start BlurLayout continuous invalidation. **/
     public void startBlur() {
+        // With a backdrop, the backdrop's loop redraws this layout while it is attached.
+        if (mBackdrop != null) {
+            if (mAttachedToWindow) {
+                mBackdrop.register(this);
+            }
+            return;
+        }
+
         if (mRunning) {
             return;
         }
@@ -149,6 +220,9 @@ public class BlurLayout extends FrameLayout {
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
         mAttachedToWindow = false;
+        if (mBackdrop != null) {
+            mBackdrop.unregister(this);
+        }
         pauseBlur();
     }
 
@@ -161,17 +235,112 @@ public class BlurLayout extends FrameLayout {
     @Override
     public void invalidate() {
         super.invalidate();
+        if (mBackdrop != null) {
+            Bitmap frame = drawBackdropFrame();
+            if (frame == null) {
+                return;
+            }
+
+            if (frame == mLastFrame) {
+                mImageView.invalidate();
+            } else {
+                mLastFrame = frame;
+                mImageView.setImageBitmap(frame);
+            }
+            return;
+        }
+
+        if (mTransition != null) {
+            Bitmap frame = drawTransitionFrame();
+            if (frame != null) {
+                mLastFrame = frame;
+                mImageView.setImageBitmap(frame);
+            }
+            return;
+        }
+
         Bitmap bitmap = blur();
         if (bitmap != null) {
-            mImageView.setImageBitmap(bitmap);
+            boolean displayTraced = BlurTrace.begin(BlurTrace.DISPLAY);
+            try {
+                if (mHardwareBitmap) {
+                    Bitmap hardware = BlurKit.toHardwareBitmap(bitmap);
+                    if (hardware != bitmap) {
+                        bitmap.recycle();
+                        bitmap = hardware;
+                    }
+                }
+
+                mLastFrame = bitmap;
+                mImageView.setImageBitmap(bitmap);
+            } finally {
+                BlurTrace.end(displayTraced);
+            }
+        }
+    }
+
+    /**
+     * Stops the blur and drops the locked view bitmap, the shown frame and the activity view reference.
+     * Call {@link #startBlur()} or {@link #invalidate()} to blur again; a locked view is re-captured then.
+     */
+    public void release() {
+        pauseBlur();
+        if (mBackdrop != null) {
+            mBackdrop.unregister(this);
         }
+        cancelBlurAnimation();
+        dropBitmaps();
+        mActivityView = null;
+    }
+
+    /**
+     * Frees cached memory according to a {@link ComponentCallbacks2} trim level. Once the UI is
+     * hidden the locked view bitmap and the shown frame are dropped; under lighter pressure only the
+     * locked view bitmap is. The blur keeps running, so everything is re-made on the next frame.
+     */
+    public void trimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            dropBitmaps();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW && mLockedBitmap != null) {
+            mLockedBitmap.recycle();
+            mLockedBitmap = null;
+        }
+    }
+
+    /** Drops the locked view bitmap and the shown frame. */
+    private void dropBitmaps() {
+        if (mLockedBitmap != null) {
+            mLockedBitmap.recycle();
+            mLockedBitmap = null;
+        }
+
+        mLastFrame = null;
+        mBackdropFrame = null;
+        if (mImageView != null) {
+            mImageView.setImageDrawable(null);
+        }
+    }
+
+    /** Bytes held by this layout's locked view bitmap and shown frame. */
+    public long getBitmapByteCount() {
+        long bytes = 0;
+        if (mLockedBitmap != null && !mLockedBitmap.isRecycled()) {
+            bytes += mLockedBitmap.getByteCount();
+        }
+
+        if (mLastFrame != null && !mLastFrame.isRecycled()) {
+            bytes += mLastFrame.getByteCount();
+        }
+
+        return bytes;
     }
 
     /**
      * Recreates blur for content and sets it as the background.
      */
     private Bitmap blur() {
-        if (getContext() == null || isInEditMode()) {
+        // Skip frames while BlurKit is released, see BlurKit.release().
+        if (getContext() == null || isInEditMode() || !BlurKit.isInitialized()) {
             return null;
         }
 
@@ -198,40 +367,6 @@ public class BlurLayout extends FrameLayout {
             pointRelativeToActivityView = getPositionInScreen();
         }
 
-        // Set alpha to 0 before creating the parent view bitmap.
-        // The blur view shouldn't be visible in the created bitmap.
-        super.setAlpha(0);
-
-        // Screen sizes for bound checks
-        int screenWidth = mActivityView.get().getWidth();
-        int screenHeight = mActivityView.get().getHeight();
-
-        // The final dimensions of the blurred bitmap.
-        int width = (int) (getWidth() * mDownscaleFactor);
-        int height = (int) (getHeight() * mDownscaleFactor);
-
-        // The X/Y position of where to crop the bitmap.
-        int x = (int) (pointRelativeToActivityView.x * mDownscaleFactor);
-        int y = (int) (pointRelativeToActivityView.y * mDownscaleFactor);
-
-        // Padding to add to crop pre-blur.
-        // Blurring straight to edges has side-effects so padding is added.
-        int xPadding = getWidth() / 8;
-        int yPadding = getHeight() / 8;
-
-        // Calculate padding independently for each side, checking edges.
-        int leftOffset = -xPadding;
-        leftOffset = x + leftOffset >= 0 ? leftOffset : 0;
-
-        int rightOffset = xPadding;
-        rightOffset = x + screenWidth - rightOffset <= screenWidth ? rightOffset : screenWidth + screenWidth - x;
-
-        int topOffset = -yPadding;
-        topOffset = y + topOffset >= 0 ? topOffset : 0;
-
-        int bottomOffset = yPadding;
-        bottomOffset = y + getHeight() + bottomOffset <= screenHeight ? bottomOffset : 0;
-
         // Parent view bitmap, downscaled with mDownscaleFactor
         Bitmap bitmap;
         if (mViewLocked) {
@@ -242,56 +377,166 @@ public class BlurLayout extends FrameLayout {
                 lockView();
             }
 
-            if (width == 0 || height == 0) {
+            // The final dimensions of the blurred bitmap.
+            int width = (int) (getWidth() * mDownscaleFactor);
+            int height = (int) (getHeight() * mDownscaleFactor);
+
+            if (mLockedBitmap == null || width == 0 || height == 0
+                    || width > mLockedBitmap.getWidth() || height > mLockedBitmap.getHeight()) {
                 return null;
             }
 
-            bitmap = Bitmap.createBitmap(mLockedBitmap, x, y, width, height);
+            // The X/Y position of where to crop the bitmap, kept inside the locked bitmap.
+            int x = (int) (pointRelativeToActivityView.x * mDownscaleFactor);
+            int y = (int) (pointRelativeToActivityView.y * mDownscaleFactor);
+            x = Math.max(0, Math.min(x, mLockedBitmap.getWidth() - width));
+            y = Math.max(0, Math.min(y, mLockedBitmap.getHeight() - height));
+
+            long cropStart = System.nanoTime();
+            boolean cropTraced = BlurTrace.begin(BlurTrace.CROP);
+            try {
+                bitmap = Bitmap.createBitmap(mLockedBitmap, x, y, width, height);
+            } finally {
+                BlurTrace.end(cropTraced);
+            }
+            long cropEnd = System.nanoTime();
+
+            BlurFrameRecorder recorder = mFrameRecorder;
+            if (recorder != null) {
+                recorder.record(null, bitmap.copy(bitmap.getConfig(), false), mBlurRadius, mDownscaleFactor,
+                        0, 0, cropEnd - cropStart);
+            }
+
+            // Make self visible, the locked bitmap was captured without it.
+            restoreAlpha();
         } else {
+            View screenView = mActivityView.get().getRootView();
+
+            // Capture the layout area plus an apron as wide as the blur radius, so the edges are
+            // blurred with the content around them. See CaptureRegion.
+            CaptureRegion region = CaptureRegion.compute(
+                    pointRelativeToActivityView.x,
+                    pointRelativeToActivityView.y,
+                    getWidth(),
+                    getHeight(),
+                    screenView.getWidth(),
+                    screenView.getHeight(),
+                    mBlurRadius,
+                    mDownscaleFactor
+            );
+
+            if (region == null) {
+                return null;
+            }
+
+            // Set alpha to 0 before creating the parent view bitmap.
+            // The blur view shouldn't be visible in the created bitmap.
+            super.setAlpha(0);
+
+            long captureStart = System.nanoTime();
+            boolean captureTraced = BlurTrace.begin(BlurTrace.CAPTURE);
             try {
-                // Create parent view bitmap, cropped to the BlurLayout area with above padding.
                 bitmap = getDownscaledBitmapForView(
-                        mActivityView.get(),
-                        new Rect(
-                                pointRelativeToActivityView.x + leftOffset,
-                                pointRelativeToActivityView.y + topOffset,
-                                pointRelativeToActivityView.x + getWidth() + Math.abs(leftOffset) + rightOffset,
-                                pointRelativeToActivityView.y + getHeight() + Math.abs(topOffset) + bottomOffset
-                        ),
-                        mDownscaleFactor
+                        screenView,
+                        region.bitmapWidth,
+                        region.bitmapHeight,
+                        region.translateX,
+                        region.translateY,
+                        mDownscaleFactor,
+                        false
                 );
             } catch (BlurKitException e) {
                 return null;
             } catch (NullPointerException e) {
                 return null;
+            } finally {
+                BlurTrace.end(captureTraced);
+
+                // Make self visible again.
+                restoreAlpha();
             }
+            // Timings are taken before the recorder's copies, so they only cover the pipeline itself.
+            long captureEnd = System.nanoTime();
 
-        }
+            BlurFrameRecorder recorder = mFrameRecorder;
+            Bitmap captured = recorder != null ? bitmap.copy(bitmap.getConfig(), false) : null;
 
-        if (!mViewLocked) {
             // Blur the bitmap.
-            bitmap = BlurKit.getInstance().blur(bitmap, mBlurRadius);
-
-            //Crop the bitmap again to remove the padding.
-            bitmap = Bitmap.createBitmap(
-                    bitmap,
-                    (int) (Math.abs(leftOffset) * mDownscaleFactor),
-                    (int) (Math.abs(topOffset) * mDownscaleFactor),
-                    width,
-                    height
-            );
+            long blurStart = System.nanoTime();
+            // A radius of 0 shows the content unblurred, like the end of an animation down to 0.
+            if (mBlurRadius > 0) {
+                bitmap = BlurKit.getInstance().blur(bitmap, mBlurRadius);
+            }
+
+            // Crop the bitmap again to remove the apron.
+            long cropStart = System.nanoTime();
+            boolean cropTraced = BlurTrace.begin(BlurTrace.CROP);
+            try {
+                bitmap = Bitmap.createBitmap(bitmap, region.cropX, region.cropY, region.cropWidth, region.cropHeight);
+            } finally {
+                BlurTrace.end(cropTraced);
+            }
+            long cropEnd = System.nanoTime();
 
+            if (recorder != null) {
+                recorder.record(captured, bitmap.copy(bitmap.getConfig(), false), mBlurRadius, mDownscaleFactor,
+                        captureEnd - captureStart, cropStart - blurStart, cropEnd - cropStart);
+            }
         }
 
-        // Make self visible again.
+        // Set background as blurred bitmap.
+        return bitmap;
+    }
+
+    /** Draws this layout's region of the shared backdrop into {@link #mBackdropFrame}. */
+    private Bitmap drawBackdropFrame() {
+        Bitmap backdrop = mBackdrop.getBitmap();
+        if (backdrop == null || isInEditMode()) {
+            return null;
+        }
+
+        float downscaleFactor = mBackdrop.getDownscaleFactor();
+        int width = (int) (getWidth() * downscaleFactor);
+        int height = (int) (getHeight() * downscaleFactor);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        if (mBackdropFrame == null || mBackdropFrame.getWidth() != width || mBackdropFrame.getHeight() != height
+                || mBackdropFrame.getConfig() != backdrop.getConfig()) {
+            mBackdropFrame = Bitmap.createBitmap(width, height, backdrop.getConfig());
+        } else {
+            mBackdropFrame.eraseColor(Color.TRANSPARENT);
+        }
+
+        Point point = mPositionLocked && mLockedPoint != null ? mLockedPoint : getPositionInScreen();
+        boolean cropTraced = BlurTrace.begin(BlurTrace.CROP);
+        try {
+            new Canvas(mBackdropFrame).drawBitmap(backdrop, -point.x * downscaleFactor, -point.y * downscaleFactor, mBackdropPaint);
+        } finally {
+            BlurTrace.end(cropTraced);
+        }
+
+        return mBackdropFrame;
+    }
+
+    /** Hides this layout while a {@link BlurBackdrop} captures the window. */
+    void hideForCapture() {
+        super.setAlpha(0);
+    }
+
+    /** Shows this layout again after a {@link BlurBackdrop} captured the window. */
+    void showAfterCapture() {
+        restoreAlpha();
+    }
+
+    /** Restores the alpha set to 0 while capturing the content behind this layout. See {@link #mAlpha}. */
+    private void restoreAlpha() {
         if (Float.isNaN(mAlpha)) {
             super.setAlpha(1);
         } else {
             super.setAlpha(mAlpha);
         }
-
-        // Set background as blurred bitmap.
-        return bitmap;
     }
 
     /**
@@ -345,24 +590,42 @@ public class BlurLayout extends FrameLayout {
 
     /**
      * Users a View reference to create a bitmap, and downscales it using the passed in factor.
-     * Uses a Rect to crop the view into the bitmap.
+     * Uses a Rect to crop the view into the bitmap. Used for bitmaps that are blurred once and kept.
      * @return Bitmap made from view, downscaled by downscaleFactor.
      * @throws NullPointerException
      */
     private Bitmap getDownscaledBitmapForView(View view, Rect crop, float downscaleFactor) throws BlurKitException, NullPointerException {
-        View screenView = view.getRootView();
+        return getDownscaledBitmapForView(
+                view,
+                (int) (crop.width() * downscaleFactor),
+                (int) (crop.height() * downscaleFactor),
+                -crop.left * downscaleFactor,
+                -crop.top * downscaleFactor,
+                downscaleFactor,
+                true
+        );
+    }
 
-        int width = (int) (crop.width() * downscaleFactor);
-        int height = (int) (crop.height() * downscaleFactor);
+    /**
+     * Draws the root of the View reference into a width x height bitmap, scaled by downscaleFactor and
+     * then translated by dx, dy.
+     * @param kept Is the bitmap blurred once and kept, rather than blurred again every frame? See {@link #mBitmapConfig}.
+     * @return Bitmap made from view, downscaled by downscaleFactor.
+     * @throws NullPointerException
+     */
+    private Bitmap getDownscaledBitmapForView(View view, int width, int height, float dx, float dy, float downscaleFactor,
+                                              boolean kept) throws BlurKitException, NullPointerException {
+        View screenView = view.getRootView();
 
         if (screenView.getWidth() <= 0 || screenView.getHeight() <= 0 || width <= 0 || height <= 0) {
             throw new BlurKitException("No screen available (width or height = 0)");
         }
 
-        float dx = -crop.left * downscaleFactor;
-        float dy = -crop.top * downscaleFactor;
-
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
+        Bitmap.Config config = mBitmapConfig;
+        if (config == null) {
+            config = kept ? BlurKit.getConfigForView(screenView) : Bitmap.Config.ARGB_8888;
+        }
+        Bitmap bitmap = Bitmap.createBitmap(width, height, config);
         Canvas canvas = new Canvas(bitmap);
         Matrix matrix = new Matrix();
         matrix.preScale(downscaleFactor, downscaleFactor);
@@ -415,6 +678,160 @@ public class BlurLayout extends FrameLayout {
         return this.mBlurRadius;
     }
 
+    /**
+     * Animates the blur radius from its current value to toRadius. The content behind the layout is
+     * captured once and blurred at {@link #DEFAULT_TRANSITION_LEVELS} radii, frames in between are
+     * cross-faded from the two closest levels. The content is frozen while the animation runs.
+     * With a {@link #setBackdrop(BlurBackdrop) backdrop} the layout shows the backdrop's blur, so the
+     * radius is set without animating; animate {@link BlurBackdrop#setBlurRadius(int)} instead.
+     * @param interpolator Interpolator for the animation, or null for the default.
+     */
+    public void animateBlurRadius(int toRadius, long duration, TimeInterpolator interpolator) {
+        animateBlurRadius(toRadius, duration, interpolator, DEFAULT_TRANSITION_LEVELS);
+    }
+
+    /**
+     * Animates the blur radius like {@link #animateBlurRadius(int, long, TimeInterpolator)}, using
+     * levelCount pre-blurred levels. More levels look closer to a real blur at each step.
+     */
+    public void animateBlurRadius(final int toRadius, long duration, TimeInterpolator interpolator, int levelCount) {
+        // The backdrop's blur is shown instead, pre-blurring transition levels would be wasted.
+        if (mBackdrop != null) {
+            cancelBlurAnimation();
+            setBlurRadius(toRadius);
+            return;
+        }
+
+        // Continue from where a running animation currently is.
+        int fromRadius = mBlurAnimator != null ? Math.round(mTransitionRadius) : mBlurRadius;
+        cancelBlurAnimation();
+
+        if (fromRadius == toRadius) {
+            return;
+        }
+
+        mTransition = createTransition(fromRadius, toRadius, levelCount);
+        if (mTransition == null) {
+            setBlurRadius(toRadius);
+            return;
+        }
+
+        mTransitionRadius = fromRadius;
+        mBlurAnimator = ValueAnimator.ofFloat(fromRadius, toRadius);
+        mBlurAnimator.setDuration(duration);
+        if (interpolator != null) {
+            mBlurAnimator.setInterpolator(interpolator);
+        }
+
+        mBlurAnimator.addUpdateListener(new ValueAnimator.AnimatorUpdateListener() {
+            @Override
+            public void onAnimationUpdate(ValueAnimator animation) {
+                mTransitionRadius = (float) animation.getAnimatedValue();
+                invalidate();
+            }
+        });
+
+        mBlurAnimator.addListener(new AnimatorListenerAdapter() {
+            private boolean mCancelled;
+
+            @Override
+            public void onAnimationCancel(Animator animation) {
+                mCancelled = true;
+            }
+
+            @Override
+            public void onAnimationEnd(Animator animation) {
+                mBlurAnimator = null;
+                releaseTransition();
+                if (!mCancelled) {
+                    setBlurRadius(toRadius);
+                }
+            }
+        });
+
+        mBlurAnimator.start();
+    }
+
+    /** Stops a running blur radius animation, leaving the blur radius at its starting value. */
+    public void cancelBlurAnimation() {
+        if (mBlurAnimator != null) {
+            mBlurAnimator.cancel();
+            mBlurAnimator = null;
+        }
+
+        releaseTransition();
+    }
+
+    /** Captures the whole activity view once and pre-blurs it at the transition levels. */
+    private BlurTransition createTransition(int fromRadius, int toRadius, int levelCount) {
+        if (getContext() == null || isInEditMode() || !BlurKit.isInitialized()) {
+            return null;
+        }
+
+        if (mActivityView == null || mActivityView.get() == null) {
+            mActivityView = new WeakReference<>(getActivityView());
+            if (mActivityView.get() == null) {
+                return null;
+            }
+        }
+
+        View view = mActivityView.get().getRootView();
+        Bitmap bitmap;
+        try {
+            super.setAlpha(0f);
+            bitmap = getDownscaledBitmapForView(view, new Rect(0, 0, view.getWidth(), view.getHeight()), mDownscaleFactor);
+        } catch (Exception e) {
+            return null;
+        } finally {
+            restoreAlpha();
+        }
+
+        BlurTransition transition = BlurKit.getInstance().createTransition(bitmap, fromRadius, toRadius, levelCount);
+        bitmap.recycle();
+        return transition;
+    }
+
+    /** Draws this layout's region of {@link #mTransition} at {@link #mTransitionRadius} into {@link #mTransitionFrame}. */
+    private Bitmap drawTransitionFrame() {
+        int width = (int) (getWidth() * mDownscaleFactor);
+        int height = (int) (getHeight() * mDownscaleFactor);
+        if (width <= 0 || height <= 0) {
+            return null;
+        }
+
+        Point point = mPositionLocked && mLockedPoint != null ? mLockedPoint : getPositionInScreen();
+        int x = (int) (point.x * mDownscaleFactor);
+        int y = (int) (point.y * mDownscaleFactor);
+
+        if (mTransitionFrame == null || mTransitionFrame.getWidth() != width || mTransitionFrame.getHeight() != height) {
+            mTransitionFrame = Bitmap.createBitmap(width, height, mTransition.getConfig());
+        } else {
+            mTransitionFrame.eraseColor(Color.TRANSPARENT);
+        }
+
+        Canvas canvas = new Canvas(mTransitionFrame);
+        mTransition.draw(canvas, new Rect(x, y, x + width, y + height), new Rect(0, 0, width, height), mTransitionRadius);
+        return mTransitionFrame;
+    }
+
+    private void releaseTransition() {
+        if (mTransition != null) {
+            mTransition.release();
+            mTransition = null;
+        }
+
+        // The frame may still be shown, so it is dropped rather than recycled.
+        mTransitionFrame = null;
+    }
+
+    /**
+     * Is a blur radius animation running?
+     * See {@link #animateBlurRadius(int, long, TimeInterpolator)}.
+     */
+    public boolean isBlurAnimationRunning() {
+        return mBlurAnimator != null;
+    }
+
     /**
      * Sets FPS to invalidate blur.
      * See {@link #mFPS}.
@@ -474,6 +891,98 @@ public class BlurLayout extends FrameLayout {
         return mAlpha;
     }
 
+    /**
+     * Sets the config of the captured and blurred bitmaps. For opaque content RGB_565 halves the
+     * memory of the captured and shown bitmaps, but blurring it goes through an ARGB_8888 copy, so it
+     * costs more than ARGB_8888 when the content is blurred every frame. Pass null to pick RGB_565 for
+     * opaque content only where the blurred bitmap is kept, like a locked view.
+     * See {@link #mBitmapConfig}.
+     */
+    public void setBitmapConfig(Bitmap.Config bitmapConfig) {
+        this.mBitmapConfig = bitmapConfig;
+
+        // This field is now bad (it's in the old config so will need to be re-made)
+        this.mLockedBitmap = null;
+
+        invalidate();
+    }
+
+    /**
+     * Get bitmap config, null when picked automatically.
+     * See {@link #mBitmapConfig}.
+     */
+    public Bitmap.Config getBitmapConfig() {
+        return mBitmapConfig;
+    }
+
+    /**
+     * Sets whether blurred frames are shown as immutable hardware bitmaps. Only has an effect on
+     * Android O and above. Best suited to static blurs, since each frame is uploaded once more.
+     * See {@link #mHardwareBitmap}.
+     */
+    public void setHardwareBitmap(boolean hardwareBitmap) {
+        this.mHardwareBitmap = hardwareBitmap;
+        invalidate();
+    }
+
+    /**
+     * Get hardware bitmap value.
+     * See {@link #mHardwareBitmap}.
+     */
+    public boolean getHardwareBitmap() {
+        return mHardwareBitmap;
+    }
+
+    /**
+     * Records the captured and blurred bitmaps, parameters and timings of each following frame into
+     * recorder for debugging. Pass null to stop recording.
+     * See {@link #mFrameRecorder}.
+     */
+    public void setFrameRecorder(BlurFrameRecorder recorder) {
+        this.mFrameRecorder = recorder;
+    }
+
+    /**
+     * Get the frame recorder, null when not recording.
+     * See {@link #mFrameRecorder}.
+     */
+    public BlurFrameRecorder getFrameRecorder() {
+        return mFrameRecorder;
+    }
+
+    /**
+     * Draws this layout's region from a shared backdrop instead of capturing and blurring the content
+     * behind it. The backdrop's downscale factor, blur radius and FPS are used instead of this layout's.
+     * Meant for many layouts in one window, like RecyclerView items. Pass null to blur on its own again.
+     * See {@link #mBackdrop}.
+     */
+    public void setBackdrop(BlurBackdrop backdrop) {
+        if (mBackdrop == backdrop) {
+            return;
+        }
+
+        if (mBackdrop != null) {
+            mBackdrop.unregister(this);
+        }
+
+        pauseBlur();
+        cancelBlurAnimation();
+        mBackdrop = backdrop;
+        mBackdropFrame = null;
+
+        if (mAttachedToWindow) {
+            startBlur();
+        }
+    }
+
+    /**
+     * Get the shared backdrop, null when blurring on its own.
+     * See {@link #mBackdrop}.
+     */
+    public BlurBackdrop getBackdrop() {
+        return mBackdrop;
+    }
+
     /**
      * Save the view bitmap to be re-used each frame instead of regenerating.
      * See {@link #mViewLocked}.
@@ -481,20 +990,18 @@ public class BlurLayout extends FrameLayout {
     public void lockView() {
         mViewLocked = true;
 
-        if (mActivityView != null && mActivityView.get() != null) {
+        if (mActivityView != null && mActivityView.get() != null && BlurKit.isInitialized()) {
             View view = mActivityView.get().getRootView();
             try {
                 super.setAlpha(0f);
 
                 mLockedBitmap = getDownscaledBitmapForView(view, new Rect(0, 0, view.getWidth(), view.getHeight()), mDownscaleFactor);
 
-                if (Float.isNaN(mAlpha)) {
-                    super.setAlpha(1);
-                } else {
-                    super.setAlpha(mAlpha);
-                }
+                restoreAlpha();
 
-                mLockedBitmap = BlurKit.getInstance().blur(mLockedBitmap, mBlurRadius);
+                if (mBlurRadius > 0) {
+                    mLockedBitmap = BlurKit.getInstance().blur(mLockedBitmap, mBlurRadius);
+                }
             } catch (Exception e) {
                 // ignore
             }
@@ -0,0 +1,277 @@
+package io.alterac.blurkit;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs blur jobs on a bounded pool of worker threads, highest {@link Priority} first and, within a
+ * priority, earliest deadline first. A job that hasn't started by its deadline is dropped and counted
+ * as a deadline miss, and submitting a job with the same key as a pending or running one cancels the
+ * old job. Lower priorities only run when no higher priority job is waiting, so a bulk of background
+ * blurs never delays an on-screen one that is submitted later.
+ */
+public class BlurScheduler {
+
+    /** Priority classes, highest first. */
+    public enum Priority {
+        /**
+         * A frame about to be shown on screen but blurred off the main thread. Blurs on the main thread
+         * don't need a priority, they have an engine of their own.
+         */
+        ON_SCREEN,
+        /** A blur the user is waiting for, like opening a dialog. */
+        USER_INITIATED,
+        /** Prefetching, thumbnails and other work nobody is waiting for. */
+        BACKGROUND
+    }
+
+    /** Receives the outcome of a job on the worker thread that ran it. */
+    public interface Callback<T> {
+
+        void onResult(T result);
+
+        /** Called when the job threw. Not called for cancelled or dropped jobs. */
+        void onError(Throwable error);
+
+    }
+
+    /** Deadline value for jobs that never expire. */
+    public static final long NO_DEADLINE = 0;
+
+    private static volatile BlurScheduler defaultScheduler;
+
+    private final ThreadPoolExecutor mExecutor;
+
+    /** Most recent job for each key, used to cancel superseded jobs. Guarded by itself. */
+    private final Map<Object, Job<?>> mJobsByKey = new HashMap<>();
+
+    /** Breaks ties between jobs of the same priority and deadline in submission order. */
+    private final AtomicLong mSequence = new AtomicLong();
+
+    private final AtomicLong mCompletedCount = new AtomicLong();
+    private final AtomicLong mCancelledCount = new AtomicLong();
+    private final AtomicLong mDeadlineMissCount = new AtomicLong();
+
+    /**
+     * @param threadCount Number of worker threads.
+     */
+    public BlurScheduler(int threadCount) {
+        final int threads = Math.max(1, threadCount);
+        mExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<Runnable>(), new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "BlurScheduler-" + mCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Shared scheduler with one worker per engine BlurKit shares between background threads, so jobs
+     * wait here in priority order rather than for an engine. Blurs on the main thread, like
+     * {@link BlurLayout} frames, use an engine reserved for it and never wait behind these jobs.
+     */
+    public static BlurScheduler getDefault() {
+        if (defaultScheduler == null) {
+            synchronized (BlurScheduler.class) {
+                if (defaultScheduler == null) {
+                    int engines = BlurKit.getEngineCount();
+                    defaultScheduler = new BlurScheduler(engines > 0 ? engines : BlurKit.DEFAULT_ENGINE_COUNT);
+                }
+            }
+        }
+
+        return defaultScheduler;
+    }
+
+    /**
+     * Queues a job.
+     * @param priority Priority class of the job.
+     * @param deadlineMillis Milliseconds from now after which the job is dropped if it hasn't started,
+     *                       or {@link #NO_DEADLINE}.
+     * @param key Jobs with an equal key supersede each other, or null.
+     * @param task The work to run.
+     * @param callback Receives the result, or null.
+     * @return The queued job, which can be cancelled.
+     */
+    public <T> Job<T> submit(Priority priority, long deadlineMillis, Object key, Callable<T> task, Callback<T> callback) {
+        long deadlineNanos = deadlineMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis) : 0;
+        Job<T> job = new Job<>(this, priority, deadlineNanos, mSequence.getAndIncrement(), key, task, callback);
+
+        if (key != null) {
+            Job<?> superseded;
+            synchronized (mJobsByKey) {
+                superseded = mJobsByKey.put(key, job);
+            }
+
+            if (superseded != null) {
+                superseded.cancel(false);
+            }
+        }
+
+        mExecutor.execute(job);
+        return job;
+    }
+
+    /** Called by a job once it finished, failed, was cancelled or dropped. */
+    private void onJobDone(Job<?> job) {
+        if (job.mKey != null) {
+            synchronized (mJobsByKey) {
+                if (mJobsByKey.get(job.mKey) == job) {
+                    mJobsByKey.remove(job.mKey);
+                }
+            }
+        }
+
+        if (job.isCancelled()) {
+            // Jobs dropped for their deadline are counted as misses instead.
+            if (!job.mExpired) {
+                mCancelledCount.incrementAndGet();
+
+                // Cancelled jobs stay in the queue until a worker takes them, so drop them eagerly.
+                mExecutor.purge();
+            }
+        } else {
+            mCompletedCount.incrementAndGet();
+        }
+    }
+
+    /** Number of jobs waiting to run. */
+    public int getQueueDepth() {
+        return mExecutor.getQueue().size();
+    }
+
+    /** Number of jobs of the given priority waiting to run. */
+    public int getQueueDepth(Priority priority) {
+        int depth = 0;
+        for (Runnable runnable : mExecutor.getQueue()) {
+            if (((Job<?>) runnable).mPriority == priority) {
+                depth++;
+            }
+        }
+
+        return depth;
+    }
+
+    /** Number of jobs running right now. */
+    public int getActiveCount() {
+        return mExecutor.getActiveCount();
+    }
+
+    /** Number of jobs that ran to completion, including those that threw. */
+    public long getCompletedCount() {
+        return mCompletedCount.get();
+    }
+
+    /** Number of jobs cancelled, including those superseded by a job with the same key. */
+    public long getCancelledCount() {
+        return mCancelledCount.get();
+    }
+
+    /** Number of jobs dropped because they hadn't started by their deadline. */
+    public long getDeadlineMissCount() {
+        return mDeadlineMissCount.get();
+    }
+
+    /** Stops the workers after the jobs already queued. */
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /** A queued blur job. Cancel it with {@link #cancel(boolean)}. */
+    public static class Job<T> extends FutureTask<T> implements Comparable<Job<?>> {
+
+        private final BlurScheduler mScheduler;
+        private final Priority mPriority;
+
+        /** System.nanoTime() after which the job is dropped if not started, or 0. */
+        private final long mDeadlineNanos;
+
+        private final long mSequence;
+        private final Object mKey;
+        private final Callback<T> mCallback;
+
+        /** Was the job dropped because its deadline passed? */
+        private volatile boolean mExpired;
+
+        Job(BlurScheduler scheduler, Priority priority, long deadlineNanos, long sequence, Object key,
+            Callable<T> task, Callback<T> callback) {
+            super(task);
+            mScheduler = scheduler;
+            mPriority = priority;
+            mDeadlineNanos = deadlineNanos;
+            mSequence = sequence;
+            mKey = key;
+            mCallback = callback;
+        }
+
+        @Override
+        public void run() {
+            if (mDeadlineNanos != 0 && System.nanoTime() > mDeadlineNanos && !isDone()) {
+                mExpired = true;
+                if (cancel(false)) {
+                    mScheduler.mDeadlineMissCount.incrementAndGet();
+                }
+                return;
+            }
+
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            mScheduler.onJobDone(this);
+
+            if (mCallback != null && !isCancelled()) {
+                try {
+                    mCallback.onResult(get());
+                } catch (ExecutionException e) {
+                    mCallback.onError(e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        public Priority getPriority() {
+            return mPriority;
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            if (mPriority != other.mPriority) {
+                return mPriority.compareTo(other.mPriority);
+            }
+
+            // Jobs with a deadline go before jobs without one, earliest deadline first.
+            if (mDeadlineNanos != other.mDeadlineNanos) {
+                if (mDeadlineNanos == 0) {
+                    return 1;
+                }
+
+                if (other.mDeadlineNanos == 0) {
+                    return -1;
+                }
+
+                return mDeadlineNanos - other.mDeadlineNanos < 0 ? -1 : 1;
+            }
+
+            return mSequence < other.mSequence ? -1 : mSequence > other.mSequence ? 1 : 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,50 @@
+package io.alterac.blurkit;
+
+import android.os.Build;
+import android.os.Trace;
+
+/**
+ * Named system trace sections around the stages of the blur pipeline, so they show up separately in
+ * systrace and Perfetto instead of as one chunk inside Choreographer. Disabled by default.
+ */
+public class BlurTrace {
+
+    static final String CAPTURE = "BlurKit:capture";
+    static final String BLUR = "BlurKit:blur";
+    static final String CROP = "BlurKit:crop";
+    static final String DISPLAY = "BlurKit:display";
+    static final String DECODE = "BlurKit:decode";
+
+    private static volatile boolean enabled;
+
+    /** Turns trace sections on or off at runtime. Trace sections need Android 4.3 or above. */
+    public static void setEnabled(boolean enabled) {
+        BlurTrace.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Begins a section if tracing is enabled. Pass the result to {@link #end(boolean)} on the same
+     * thread, so the section is balanced even if tracing is toggled in between.
+     * @return Whether a section was begun.
+     */
+    static boolean begin(String section) {
+        if (enabled && Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2) {
+            Trace.beginSection(section);
+            return true;
+        }
+
+        return false;
+    }
+
+    /** Ends the section begun by the {@link #begin(String)} call that returned began. */
+    static void end(boolean began) {
+        if (began) {
+            Trace.endSection();
+        }
+    }
+
+}
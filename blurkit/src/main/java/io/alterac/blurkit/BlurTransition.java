@@ -0,0 +1,155 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+/**
+ * A small set of pre-blurred levels of the same bitmap. Any radius between the first and last level
+ * is drawn by cross-fading the two adjacent levels, so animating a blur costs one blur per level in
+ * total instead of one per frame. Create with {@link BlurKit#createTransition(Bitmap, int, int, int)}.
+ */
+public class BlurTransition {
+
+    /** Radius of each level, ascending. */
+    private final int[] mRadii;
+
+    /** Blurred bitmap of each level, matching {@link #mRadii}. */
+    private final Bitmap[] mLevels;
+
+    private final Paint mPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+    private final Rect mFullRect = new Rect();
+
+    /** Re-used bitmap returned by {@link #getFrame(float)}. */
+    private Bitmap mFrame;
+
+    BlurTransition(int[] radii, Bitmap[] levels) {
+        mRadii = radii;
+        mLevels = levels;
+    }
+
+    /**
+     * Draws the given region of the levels blended for radius into dst on the canvas.
+     * Radii outside the range of the levels are clamped. The levels are drawn over whatever dst
+     * already holds, so clear it first when the levels have alpha.
+     */
+    public void draw(Canvas canvas, Rect src, Rect dst, float radius) {
+        float position = getLevelPosition(mRadii, radius);
+        int lower = (int) position;
+        float fraction = position - lower;
+
+        mPaint.setAlpha(255);
+        canvas.drawBitmap(mLevels[lower], src, dst, mPaint);
+
+        if (fraction > 0 && lower + 1 < mLevels.length) {
+            mPaint.setAlpha(Math.round(fraction * 255));
+            canvas.drawBitmap(mLevels[lower + 1], src, dst, mPaint);
+        }
+    }
+
+    /**
+     * Returns the full bitmap blended for radius. The returned bitmap is re-used by the next call.
+     */
+    public Bitmap getFrame(float radius) {
+        Bitmap first = mLevels[0];
+        if (mFrame == null) {
+            mFrame = Bitmap.createBitmap(first.getWidth(), first.getHeight(), first.getConfig());
+        }
+
+        // Levels with alpha are drawn over the frame, so clear what the previous call left in it.
+        mFrame.eraseColor(Color.TRANSPARENT);
+        mFullRect.set(0, 0, first.getWidth(), first.getHeight());
+        draw(new Canvas(mFrame), mFullRect, mFullRect, radius);
+        return mFrame;
+    }
+
+    public int getWidth() {
+        return mLevels[0].getWidth();
+    }
+
+    public int getHeight() {
+        return mLevels[0].getHeight();
+    }
+
+    public Bitmap.Config getConfig() {
+        return mLevels[0].getConfig();
+    }
+
+    /** Radii of the pre-blurred levels, ascending. */
+    public int[] getRadii() {
+        return mRadii.clone();
+    }
+
+    /** Bytes held by the levels and the re-used frame. */
+    public long getByteCount() {
+        long bytes = mFrame != null ? mFrame.getByteCount() : 0;
+        for (Bitmap level : mLevels) {
+            bytes += level.getByteCount();
+        }
+
+        return bytes;
+    }
+
+    /** Recycles all levels. The transition can't be drawn after this. */
+    public void release() {
+        for (Bitmap level : mLevels) {
+            level.recycle();
+        }
+
+        if (mFrame != null) {
+            mFrame.recycle();
+            mFrame = null;
+        }
+    }
+
+    /**
+     * Fractional index into the ascending radii for the given radius. The integer part is the lower
+     * level, the fraction is how far to fade towards the next one.
+     */
+    static float getLevelPosition(int[] radii, float radius) {
+        if (radius <= radii[0]) {
+            return 0;
+        }
+
+        int last = radii.length - 1;
+        if (radius >= radii[last]) {
+            return last;
+        }
+
+        int lower = 0;
+        while (radius >= radii[lower + 1]) {
+            lower++;
+        }
+
+        return lower + (radius - radii[lower]) / (radii[lower + 1] - radii[lower]);
+    }
+
+    /**
+     * Evenly spaced integer radii from fromRadius to toRadius inclusive, ascending and without duplicates.
+     * Both ends are clamped to 0..{@link BlurEngine#MAX_RADIUS}, the range a blur can actually produce.
+     */
+    static int[] getLevelRadii(int fromRadius, int toRadius, int levelCount) {
+        int min = clampRadius(Math.min(fromRadius, toRadius));
+        int max = clampRadius(Math.max(fromRadius, toRadius));
+        if (min == max) {
+            return new int[] {min};
+        }
+
+        int count = Math.max(2, Math.min(levelCount, max - min + 1));
+
+        int[] radii = new int[count];
+        for (int i = 0; i < count; i++) {
+            radii[i] = min + Math.round((max - min) * i / (float) (count - 1));
+        }
+
+        return radii;
+    }
+
+    private static int clampRadius(int radius) {
+        return Math.max(0, Math.min(radius, BlurEngine.MAX_RADIUS));
+    }
+
+}
@@ -0,0 +1,90 @@
+package io.alterac.blurkit;
+
+/**
+ * The part of the screen captured for one blurred frame, in downscaled pixels. The layout's own area
+ * is surrounded by an apron as wide as the blur radius, so pixels at the layout's edges are blurred
+ * with the real content next to them instead of the bitmap edge. The apron is cut short at the screen
+ * edges, where there is no content to capture.
+ */
+class CaptureRegion {
+
+    /** Size of the bitmap to capture into. */
+    final int bitmapWidth;
+    final int bitmapHeight;
+
+    /** Position and size of the layout's area inside the captured bitmap. */
+    final int cropX;
+    final int cropY;
+    final int cropWidth;
+    final int cropHeight;
+
+    /** Translation applied after scaling by the downscale factor when drawing the screen into the bitmap. */
+    final float translateX;
+    final float translateY;
+
+    private CaptureRegion(int bitmapWidth, int bitmapHeight, int cropX, int cropY, int cropWidth, int cropHeight,
+                          float translateX, float translateY) {
+        this.bitmapWidth = bitmapWidth;
+        this.bitmapHeight = bitmapHeight;
+        this.cropX = cropX;
+        this.cropY = cropY;
+        this.cropWidth = cropWidth;
+        this.cropHeight = cropHeight;
+        this.translateX = translateX;
+        this.translateY = translateY;
+    }
+
+    /**
+     * @param x Left of the layout on screen, in screen pixels.
+     * @param y Top of the layout on screen, in screen pixels.
+     * @param width Width of the layout, in screen pixels.
+     * @param height Height of the layout, in screen pixels.
+     * @param screenWidth Width of the captured screen, in screen pixels.
+     * @param screenHeight Height of the captured screen, in screen pixels.
+     * @param blurRadius Blur radius, in downscaled pixels.
+     * @return The region, or null if the layout is smaller than one downscaled pixel.
+     */
+    static CaptureRegion compute(int x, int y, int width, int height, int screenWidth, int screenHeight,
+                                 int blurRadius, float downscaleFactor) {
+        int cropWidth = (int) (width * downscaleFactor);
+        int cropHeight = (int) (height * downscaleFactor);
+        if (cropWidth <= 0 || cropHeight <= 0) {
+            return null;
+        }
+
+        float scaledX = x * downscaleFactor;
+        float scaledY = y * downscaleFactor;
+        int radius = Math.max(0, blurRadius);
+
+        int leftApron = getApron(scaledX, radius);
+        int topApron = getApron(scaledY, radius);
+        int rightApron = getApron(screenWidth * downscaleFactor - (scaledX + cropWidth), radius);
+        int bottomApron = getApron(screenHeight * downscaleFactor - (scaledY + cropHeight), radius);
+
+        return new CaptureRegion(
+                leftApron + cropWidth + rightApron,
+                topApron + cropHeight + bottomApron,
+                leftApron,
+                topApron,
+                cropWidth,
+                cropHeight,
+                leftApron - scaledX,
+                topApron - scaledY
+        );
+    }
+
+    /** Whole downscaled pixels of content available up to the blur radius, given the room to the screen edge. */
+    private static int getApron(float room, int radius) {
+        if (room <= 0) {
+            return 0;
+        }
+
+        return Math.min(radius, (int) room);
+    }
+
+    /** Number of pixels captured and blurred. */
+    int getPixelCount() {
+        return bitmapWidth * bitmapHeight;
+    }
+
+}
@@ -0,0 +1,52 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+import android.graphics.Color;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BitmapPoolTest {
+
+    private static final int TEST_SIZE = 10;
+    private static final int TEST_BYTE_COUNT = 400;
+
+    @Test
+    public void getClearsReusedBitmapTest() {
+        BitmapPool pool = new BitmapPool(BitmapPool.DEFAULT_MAX_BYTES);
+        Bitmap bitmap = mockBitmap();
+        pool.put(bitmap);
+        assertEquals(TEST_BYTE_COUNT, pool.getByteCount());
+
+        assertSame(bitmap, pool.get(TEST_SIZE, TEST_SIZE, Bitmap.Config.ARGB_8888));
+        assertEquals(0, pool.getByteCount());
+        verify(bitmap).eraseColor(Color.TRANSPARENT);
+    }
+
+    @Test
+    public void putTrimsToMaxBytesTest() {
+        BitmapPool pool = new BitmapPool(TEST_BYTE_COUNT);
+        Bitmap oldest = mockBitmap();
+        pool.put(oldest);
+        pool.put(mockBitmap());
+
+        assertEquals(TEST_BYTE_COUNT, pool.getByteCount());
+        verify(oldest).recycle();
+    }
+
+    private static Bitmap mockBitmap() {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.isMutable()).thenReturn(true);
+        when(bitmap.getWidth()).thenReturn(TEST_SIZE);
+        when(bitmap.getHeight()).thenReturn(TEST_SIZE);
+        when(bitmap.getConfig()).thenReturn(Bitmap.Config.ARGB_8888);
+        when(bitmap.getByteCount()).thenReturn(TEST_BYTE_COUNT);
+        return bitmap;
+    }
+
+}
@@ -0,0 +1,99 @@
+package io.alterac.blurkit;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.view.View;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlurBackdropTest {
+
+    @Mock
+    private Context mockContext;
+
+    @Mock
+    private View mockView;
+
+    private BlurBackdrop backdrop;
+    private BlurLayout firstLayout;
+    private BlurLayout secondLayout;
+
+    @Before
+    public void setupTests() {
+        MockitoAnnotations.initMocks(this);
+        when(mockContext.getApplicationContext()).thenReturn(mockContext);
+        when(mockView.getContext()).thenReturn(mockContext);
+
+        // The Choreographer isn't available in unit tests.
+        backdrop = spy(new BlurBackdrop(mockView));
+        doNothing().when(backdrop).postFrame(anyLong());
+        doNothing().when(backdrop).removeFrame();
+
+        firstLayout = new BlurLayout(mockContext);
+        secondLayout = new BlurLayout(mockContext);
+    }
+
+    @After
+    public void releaseBlurKit() {
+        BlurKit.release();
+    }
+
+    @Test
+    public void registerStartsFrameLoopOnceTest() {
+        backdrop.register(firstLayout);
+        backdrop.register(firstLayout);
+        backdrop.register(secondLayout);
+
+        assertEquals(2, backdrop.getLayoutCount());
+        verify(backdrop, times(1)).postFrame(0);
+    }
+
+    @Test
+    public void unregisterStopsFrameLoopAfterLastLayoutTest() {
+        backdrop.register(firstLayout);
+        backdrop.register(secondLayout);
+
+        backdrop.unregister(firstLayout);
+        assertEquals(1, backdrop.getLayoutCount());
+        verify(backdrop, never()).removeFrame();
+
+        backdrop.unregister(secondLayout);
+        assertEquals(0, backdrop.getLayoutCount());
+        verify(backdrop).removeFrame();
+    }
+
+    @Test
+    public void registerAfterLastLayoutRestartsFrameLoopTest() {
+        backdrop.register(firstLayout);
+        backdrop.unregister(firstLayout);
+        backdrop.register(secondLayout);
+
+        verify(backdrop, times(2)).postFrame(0);
+    }
+
+    @Test
+    public void setBitmapConfigTest() {
+        assertEquals(Bitmap.Config.ARGB_8888, backdrop.getBitmapConfig());
+
+        backdrop.setBitmapConfig(Bitmap.Config.RGB_565);
+        assertEquals(Bitmap.Config.RGB_565, backdrop.getBitmapConfig());
+
+        backdrop.setBitmapConfig(null);
+        assertNull(backdrop.getBitmapConfig());
+    }
+
+}
@@ -0,0 +1,110 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class BlurFrameRecorderTest {
+
+    @Test
+    public void keepsMostRecentFramesTest() {
+        BlurFrameRecorder recorder = new BlurFrameRecorder(3);
+        for (int radius = 1; radius <= 5; radius++) {
+            recorder.record(null, null, radius, 0.1f, 1, 2, 3);
+        }
+
+        List<BlurFrameRecorder.Frame> frames = recorder.getFrames();
+        assertEquals(3, frames.size());
+        assertEquals(3, frames.get(0).blurRadius);
+        assertEquals(4, frames.get(1).blurRadius);
+        assertEquals(5, frames.get(2).blurRadius);
+    }
+
+    @Test
+    public void clearTest() {
+        BlurFrameRecorder recorder = new BlurFrameRecorder(2);
+        recorder.record(null, null, 1, 0.1f, 1, 2, 3);
+        recorder.clear();
+
+        assertEquals(0, recorder.getFrames().size());
+    }
+
+    @Test
+    public void dumpWritesFrameListTest() throws IOException {
+        BlurFrameRecorder recorder = new BlurFrameRecorder(4);
+        recorder.record(null, null, 12, 0.12f, 1000000, 2000000, 500000);
+        recorder.record(null, null, 8, 0.12f, 1000000, 2000000, 500000);
+
+        File directory = File.createTempFile("blurkit", "");
+        assertTrue(directory.delete());
+        recorder.dumpTo(directory);
+
+        BufferedReader reader = new BufferedReader(new FileReader(new File(directory, "frames.txt")));
+        try {
+            assertTrue(reader.readLine().startsWith("index"));
+
+            String first = reader.readLine();
+            assertTrue(first.startsWith("0\t"));
+            assertTrue(first.endsWith("\t12\t0.120\t1.000\t2.000\t0.500"));
+
+            String second = reader.readLine();
+            assertTrue(second.startsWith("1\t"));
+            assertTrue(second.endsWith("\t8\t0.120\t1.000\t2.000\t0.500"));
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void recordDuringDumpTest() throws IOException {
+        final BlurFrameRecorder recorder = new BlurFrameRecorder(1);
+        final boolean[] recycled = new boolean[1];
+        final boolean[] recycledDuringDump = new boolean[1];
+
+        Bitmap blurred = mock(Bitmap.class);
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+                recycled[0] = true;
+                return null;
+            }
+        }).when(blurred).recycle();
+        when(blurred.compress(any(Bitmap.CompressFormat.class), anyInt(), any(OutputStream.class))).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+                // Drops the frame being written, which must not be recycled before the dump is done.
+                recorder.record(null, null, 2, 0.1f, 1, 2, 3);
+                recycledDuringDump[0] = recycled[0];
+                return true;
+            }
+        });
+        recorder.record(null, blurred, 1, 0.1f, 1, 2, 3);
+
+        File directory = File.createTempFile("blurkit", "");
+        assertTrue(directory.delete());
+        recorder.dumpTo(directory);
+
+        assertFalse(recycledDuringDump[0]);
+        assertTrue(recycled[0]);
+        assertEquals(2, recorder.getFrames().get(0).blurRadius);
+    }
+
+}
@@ -0,0 +1,198 @@
+package io.alterac.blurkit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertTrue;
+import static org.junit.Assert.assertArrayEquals;
+
+public class BlurFrameStreamTest {
+
+    private static final int WIDTH = 64;
+    private static final int HEIGHT = 48;
+    private static final float DOWNSCALE_FACTOR = 0.25f;
+    private static final int RADIUS = 4;
+
+    private BlurFrameStream stream;
+
+    @After
+    public void tearDown() {
+        if (stream != null) {
+            stream.close();
+        }
+    }
+
+    @Test
+    public void uniformFrameStaysUniformTest() throws Exception {
+        FrameCollector collector = new FrameCollector();
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, collector);
+
+        assertTrue(stream.submitNv21(createNv21(100, 100), 1));
+        int[] frame = collector.await();
+
+        assertEquals(WIDTH / 4, stream.getOutputWidth());
+        assertEquals(HEIGHT / 4, stream.getOutputHeight());
+        for (int pixel : frame) {
+            assertEquals(0xff646464, pixel);
+        }
+    }
+
+    @Test
+    public void edgeIsBlurredTest() throws Exception {
+        FrameCollector collector = new FrameCollector();
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, collector);
+
+        // Black left half, white right half.
+        stream.submitNv21(createNv21(0, 255), 1);
+        int[] frame = collector.await();
+
+        int width = stream.getOutputWidth();
+        int row = (stream.getOutputHeight() / 2) * width;
+        int previous = -1;
+        for (int x = 0; x < width; x++) {
+            int blue = frame[row + x] & 0xff;
+            assertTrue(blue >= previous);
+            previous = blue;
+        }
+
+        int leftOfEdge = frame[row + width / 2 - 1] & 0xff;
+        int rightOfEdge = frame[row + width / 2] & 0xff;
+        assertTrue(leftOfEdge > 0 && leftOfEdge < 255);
+        assertTrue(rightOfEdge > 0 && rightOfEdge < 255);
+    }
+
+    @Test
+    public void yuv420MatchesNv21Test() throws Exception {
+        ByteBuffer nv21 = createNv21(30, 220);
+        int lumaSize = WIDTH * HEIGHT;
+        int chromaSize = lumaSize / 4;
+
+        ByteBuffer y = ByteBuffer.allocateDirect(lumaSize);
+        ByteBuffer u = ByteBuffer.allocateDirect(chromaSize);
+        ByteBuffer v = ByteBuffer.allocateDirect(chromaSize);
+        for (int i = 0; i < lumaSize; i++) {
+            y.put(i, nv21.get(i));
+        }
+        for (int i = 0; i < chromaSize; i++) {
+            v.put(i, nv21.get(lumaSize + 2 * i));
+            u.put(i, nv21.get(lumaSize + 2 * i + 1));
+        }
+
+        FrameCollector nv21Collector = new FrameCollector();
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, nv21Collector);
+        stream.submitNv21(nv21, 1);
+        int[] fromNv21 = nv21Collector.await();
+        stream.close();
+
+        FrameCollector yuv420Collector = new FrameCollector();
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, yuv420Collector);
+        stream.submitYuv420(y, u, v, WIDTH, WIDTH / 2, 1, 2);
+        int[] fromYuv420 = yuv420Collector.await();
+
+        assertArrayEquals(fromNv21, fromYuv420);
+    }
+
+    @Test
+    public void submitLeavesBufferPositionTest() throws Exception {
+        ByteBuffer frame = createNv21(100, 100);
+        ByteBuffer offsetFrame = ByteBuffer.allocateDirect(frame.capacity() + 16);
+        offsetFrame.position(16);
+        for (int i = 0; i < frame.capacity(); i++) {
+            offsetFrame.put(16 + i, frame.get(i));
+        }
+
+        FrameCollector collector = new FrameCollector();
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, collector);
+        assertTrue(stream.submitNv21(offsetFrame, 1));
+        int[] blurred = collector.await();
+
+        assertEquals(16, offsetFrame.position());
+        for (int pixel : blurred) {
+            assertEquals(0xff646464, pixel);
+        }
+    }
+
+    @Test
+    public void framesDroppedWhileConsumerIsSlowTest() throws Exception {
+        final CountDownLatch consuming = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        stream = new BlurFrameStream(WIDTH, HEIGHT, DOWNSCALE_FACTOR, RADIUS, new BlurFrameStream.Listener() {
+            @Override
+            public void onFrameBlurred(int[] argb, int width, int height, long timestampNanos) {
+                consuming.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+
+        ByteBuffer frame = createNv21(50, 50);
+        assertTrue(stream.submitNv21(frame, 1));
+        assertTrue(consuming.await(5, TimeUnit.SECONDS));
+
+        for (int i = 0; i < 10; i++) {
+            assertFalse(stream.submitNv21(frame, 2 + i));
+        }
+
+        release.countDown();
+        assertEquals(11, stream.getSubmittedCount());
+        assertEquals(10, stream.getDroppedCount());
+    }
+
+    @Test
+    public void boxRadiusTest() {
+        assertEquals(0, BlurFrameStream.getBoxRadius(0));
+        assertEquals(1, BlurFrameStream.getBoxRadius(1));
+        assertEquals(5, BlurFrameStream.getBoxRadius(12));
+    }
+
+    @Test
+    public void yuvToArgbTest() {
+        assertEquals(0xff808080, BlurFrameStream.yuvToArgb(128, 128, 128));
+        assertEquals(0xff000000, BlurFrameStream.yuvToArgb(0, 128, 128));
+        assertEquals(0xffffffff, BlurFrameStream.yuvToArgb(255, 128, 128));
+    }
+
+    /** Creates a grey NV21 frame with the given luma on the left and right halves. */
+    private static ByteBuffer createNv21(int leftLuma, int rightLuma) {
+        int lumaSize = WIDTH * HEIGHT;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(lumaSize + lumaSize / 2);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                buffer.put(y * WIDTH + x, (byte) (x < WIDTH / 2 ? leftLuma : rightLuma));
+            }
+        }
+        for (int i = lumaSize; i < buffer.capacity(); i++) {
+            buffer.put(i, (byte) 128);
+        }
+
+        return buffer;
+    }
+
+    private static class FrameCollector implements BlurFrameStream.Listener {
+
+        private final CountDownLatch latch = new CountDownLatch(1);
+        private int[] frame;
+
+        @Override
+        public void onFrameBlurred(int[] argb, int width, int height, long timestampNanos) {
+            frame = argb.clone();
+            latch.countDown();
+        }
+
+        int[] await() throws InterruptedException {
+            assertTrue(latch.await(5, TimeUnit.SECONDS));
+            return frame;
+        }
+
+    }
+
+}
@@ -0,0 +1,23 @@
+package io.alterac.blurkit;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+
+public class BlurKitTest {
+
+    @Test
+    public void inSampleSizeKeepsTargetTest() {
+        assertEquals(1, BlurKit.calculateInSampleSize(100, 100, 100, 100));
+        assertEquals(2, BlurKit.calculateInSampleSize(200, 200, 100, 100));
+        assertEquals(2, BlurKit.calculateInSampleSize(399, 399, 100, 100));
+        assertEquals(4, BlurKit.calculateInSampleSize(400, 400, 100, 100));
+    }
+
+    @Test
+    public void inSampleSizeLimitedBySmallerSideTest() {
+        assertEquals(2, BlurKit.calculateInSampleSize(4000, 300, 100, 100));
+        assertEquals(1, BlurKit.calculateInSampleSize(50, 50, 100, 100));
+    }
+
+}
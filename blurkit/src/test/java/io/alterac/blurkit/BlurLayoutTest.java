@@ -1,6 +1,10 @@
 package io.alterac.blurkit;
 
+import android.content.ComponentCallbacks2;
 import android.content.Context;
+import android.graphics.Bitmap;
+
+import java.lang.reflect.Field;
 
 import org.junit.Before;
 import org.junit.Test;
@@ -8,6 +12,15 @@ import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
 import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertFalse;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertSame;
+import static junit.framework.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 public class BlurLayoutTest {
 
@@ -16,6 +29,7 @@ public class BlurLayoutTest {
 
     public static final int TEST_INT = 1;
     private static final float TEST_FLOAT = 1.1f;
+    private static final int TEST_BYTE_COUNT = 100;
 
     private BlurLayout blurLayout;
 
@@ -50,6 +64,36 @@ public class BlurLayoutTest {
         assertEquals(TEST_FLOAT, blurLayout.getCornerRadius());
     }
 
+    @Test
+    public void setBitmapConfigTest() {
+        blurLayout.setBitmapConfig(Bitmap.Config.RGB_565);
+        assertEquals(Bitmap.Config.RGB_565, blurLayout.getBitmapConfig());
+
+        blurLayout.setBitmapConfig(null);
+        assertNull(blurLayout.getBitmapConfig());
+    }
+
+    @Test
+    public void setHardwareBitmapTest() {
+        blurLayout.setHardwareBitmap(true);
+        assertTrue(blurLayout.getHardwareBitmap());
+    }
+
+    @Test
+    public void animateBlurRadiusWithoutContentTest() {
+        blurLayout.animateBlurRadius(TEST_INT + 1, 300, null);
+        assertEquals(TEST_INT + 1, blurLayout.getBlurRadius());
+        assertFalse(blurLayout.isBlurAnimationRunning());
+    }
+
+    @Test
+    public void animateBlurRadiusToZeroTest() {
+        blurLayout.setBlurRadius(TEST_INT + 1);
+        blurLayout.animateBlurRadius(0, 300, null);
+        assertEquals(0, blurLayout.getBlurRadius());
+        assertFalse(blurLayout.isBlurAnimationRunning());
+    }
+
     @Test
     public void unlockViewTest() {
         blurLayout.unlockView();
@@ -60,4 +104,113 @@ public class BlurLayoutTest {
         blurLayout.lockView();
     }
 
+    @Test
+    public void releaseTest() throws Exception {
+        Bitmap lockedBitmap = mockBitmap();
+        Bitmap lastFrame = mockBitmap();
+        setField("mLockedBitmap", lockedBitmap);
+        setField("mLastFrame", lastFrame);
+        assertEquals(2 * TEST_BYTE_COUNT, blurLayout.getBitmapByteCount());
+
+        blurLayout.release();
+        assertEquals(0, blurLayout.getBitmapByteCount());
+        verify(lockedBitmap).recycle();
+    }
+
+    @Test
+    public void trimMemoryTest() throws Exception {
+        Bitmap lockedBitmap = mockBitmap();
+        setField("mLockedBitmap", lockedBitmap);
+        setField("mLastFrame", mockBitmap());
+        setField("mRunning", true);
+
+        blurLayout.trimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertEquals(0, blurLayout.getBitmapByteCount());
+        verify(lockedBitmap).recycle();
+
+        // The blur keeps running, so it comes back once the UI is shown again.
+        assertTrue((Boolean) getField("mRunning"));
+    }
+
+    @Test
+    public void trimMemoryRunningLowTest() throws Exception {
+        Bitmap lockedBitmap = mockBitmap();
+        setField("mLockedBitmap", lockedBitmap);
+        setField("mLastFrame", mockBitmap());
+
+        blurLayout.trimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertEquals(TEST_BYTE_COUNT, blurLayout.getBitmapByteCount());
+        verify(lockedBitmap).recycle();
+    }
+
+    @Test
+    public void setBackdropSwitchingTest() throws Exception {
+        BlurBackdrop first = mock(BlurBackdrop.class);
+        BlurBackdrop second = mock(BlurBackdrop.class);
+        setField("mAttachedToWindow", true);
+
+        blurLayout.setBackdrop(first);
+        assertSame(first, blurLayout.getBackdrop());
+        verify(first).register(blurLayout);
+
+        blurLayout.setBackdrop(second);
+        verify(first).unregister(blurLayout);
+        verify(second).register(blurLayout);
+
+        // With no FPS the layout has no frame loop of its own to fall back to, so nothing is posted to the Choreographer.
+        blurLayout.setFPS(0);
+        blurLayout.setBackdrop(null);
+        assertNull(blurLayout.getBackdrop());
+        verify(second).unregister(blurLayout);
+    }
+
+    @Test
+    public void setBackdropDetachedTest() {
+        BlurBackdrop backdrop = mock(BlurBackdrop.class);
+
+        blurLayout.setBackdrop(backdrop);
+        verify(backdrop, never()).register(blurLayout);
+    }
+
+    @Test
+    public void animateBlurRadiusWithBackdropTest() {
+        BlurBackdrop backdrop = mock(BlurBackdrop.class);
+        blurLayout.setBackdrop(backdrop);
+
+        blurLayout.animateBlurRadius(TEST_INT + 1, 300, null);
+        assertEquals(TEST_INT + 1, blurLayout.getBlurRadius());
+        assertFalse(blurLayout.isBlurAnimationRunning());
+    }
+
+    @Test
+    public void releaseUnregistersFromBackdropTest() throws Exception {
+        BlurBackdrop backdrop = mock(BlurBackdrop.class);
+        setField("mAttachedToWindow", true);
+        blurLayout.setBackdrop(backdrop);
+
+        blurLayout.release();
+        verify(backdrop).unregister(blurLayout);
+
+        blurLayout.startBlur();
+        verify(backdrop, times(2)).register(blurLayout);
+    }
+
+    private static Bitmap mockBitmap() {
+        Bitmap bitmap = mock(Bitmap.class);
+        when(bitmap.getByteCount()).thenReturn(TEST_BYTE_COUNT);
+        return bitmap;
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = BlurLayout.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(blurLayout, value);
+    }
+
+    private Object getField(String name) throws Exception {
+        Field field = BlurLayout.class.getDeclaredField(name);
+        field.setAccessible(true);
+        return field.get(blurLayout);
+    }
+
 }
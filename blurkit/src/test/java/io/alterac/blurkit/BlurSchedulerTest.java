@@ -0,0 +1,124 @@
+package io.alterac.blurkit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertTrue;
+
+public class BlurSchedulerTest {
+
+    private BlurScheduler scheduler;
+
+    /** Keeps the single worker busy until counted down. */
+    private CountDownLatch blocker;
+
+    private List<String> results;
+
+    @Before
+    public void setupTests() throws Exception {
+        scheduler = new BlurScheduler(1);
+        blocker = new CountDownLatch(1);
+        results = Collections.synchronizedList(new ArrayList<String>());
+
+        final CountDownLatch started = new CountDownLatch(1);
+        scheduler.submit(BlurScheduler.Priority.ON_SCREEN, BlurScheduler.NO_DEADLINE, null, new Callable<String>() {
+            @Override
+            public String call() throws Exception {
+                started.countDown();
+                blocker.await();
+                return "blocker";
+            }
+        }, null);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+    }
+
+    @After
+    public void tearDown() {
+        blocker.countDown();
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void higherPriorityRunsFirstTest() throws Exception {
+        CountDownLatch done = new CountDownLatch(4);
+        submit(BlurScheduler.Priority.BACKGROUND, BlurScheduler.NO_DEADLINE, null, "background", done);
+        submit(BlurScheduler.Priority.USER_INITIATED, BlurScheduler.NO_DEADLINE, null, "user", done);
+        submit(BlurScheduler.Priority.ON_SCREEN, BlurScheduler.NO_DEADLINE, null, "frame", done);
+        submit(BlurScheduler.Priority.USER_INITIATED, 10000, null, "user deadline", done);
+
+        assertEquals(4, scheduler.getQueueDepth());
+        assertEquals(2, scheduler.getQueueDepth(BlurScheduler.Priority.USER_INITIATED));
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals("frame", results.get(0));
+        assertEquals("user deadline", results.get(1));
+        assertEquals("user", results.get(2));
+        assertEquals("background", results.get(3));
+    }
+
+    @Test
+    public void supersededJobIsCancelledTest() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        Object key = new Object();
+        BlurScheduler.Job<String> first = submit(BlurScheduler.Priority.ON_SCREEN, BlurScheduler.NO_DEADLINE, key, "first", done);
+        submit(BlurScheduler.Priority.ON_SCREEN, BlurScheduler.NO_DEADLINE, key, "second", done);
+
+        assertTrue(first.isCancelled());
+        assertEquals(1, scheduler.getCancelledCount());
+        assertEquals(1, scheduler.getQueueDepth());
+
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, results.size());
+        assertEquals("second", results.get(0));
+    }
+
+    @Test
+    public void expiredJobIsDroppedTest() throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        submit(BlurScheduler.Priority.ON_SCREEN, 1, null, "late", done);
+        submit(BlurScheduler.Priority.BACKGROUND, BlurScheduler.NO_DEADLINE, null, "background", done);
+
+        Thread.sleep(20);
+        blocker.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+
+        assertEquals(1, results.size());
+        assertEquals("background", results.get(0));
+        assertEquals(1, scheduler.getDeadlineMissCount());
+        assertEquals(0, scheduler.getCancelledCount());
+    }
+
+    private BlurScheduler.Job<String> submit(BlurScheduler.Priority priority, long deadlineMillis, Object key,
+                                             final String name, final CountDownLatch done) {
+        return scheduler.submit(priority, deadlineMillis, key, new Callable<String>() {
+            @Override
+            public String call() {
+                return name;
+            }
+        }, new BlurScheduler.Callback<String>() {
+            @Override
+            public void onResult(String result) {
+                results.add(result);
+                done.countDown();
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                done.countDown();
+            }
+        });
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.alterac.blurkit;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+
+import java.lang.reflect.Field;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.InOrder;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertSame;
+import static org.junit.Assert.assertArrayEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class BlurTransitionTest {
+
+    private static final float DELTA = 0.0001f;
+
+    private Bitmap lowLevel;
+    private Bitmap highLevel;
+    private Paint paint;
+    private Canvas canvas;
+    private BlurTransition transition;
+
+    @Before
+    public void setupTests() throws Exception {
+        lowLevel = mock(Bitmap.class);
+        highLevel = mock(Bitmap.class);
+        paint = mock(Paint.class);
+        canvas = mock(Canvas.class);
+
+        transition = new BlurTransition(new int[] {0, 10}, new Bitmap[] {lowLevel, highLevel});
+        setField("mPaint", paint);
+    }
+
+    @Test
+    public void levelRadiiTest() {
+        assertArrayEquals(new int[] {0, 7, 13, 20}, BlurTransition.getLevelRadii(0, 20, 4));
+        assertArrayEquals(new int[] {0, 7, 13, 20}, BlurTransition.getLevelRadii(20, 0, 4));
+        assertArrayEquals(new int[] {4, 5, 6}, BlurTransition.getLevelRadii(4, 6, 8));
+        assertArrayEquals(new int[] {5}, BlurTransition.getLevelRadii(5, 5, 4));
+    }
+
+    @Test
+    public void levelRadiiClampedTest() {
+        assertArrayEquals(new int[] {0, 25}, BlurTransition.getLevelRadii(-5, 40, 2));
+        assertArrayEquals(new int[] {25}, BlurTransition.getLevelRadii(30, 40, 4));
+    }
+
+    @Test
+    public void levelPositionTest() {
+        int[] radii = {0, 10, 20};
+        assertEquals(0f, BlurTransition.getLevelPosition(radii, 0), DELTA);
+        assertEquals(0.5f, BlurTransition.getLevelPosition(radii, 5), DELTA);
+        assertEquals(1f, BlurTransition.getLevelPosition(radii, 10), DELTA);
+        assertEquals(1.25f, BlurTransition.getLevelPosition(radii, 12.5f), DELTA);
+        assertEquals(2f, BlurTransition.getLevelPosition(radii, 20), DELTA);
+    }
+
+    @Test
+    public void levelPositionClampedTest() {
+        int[] radii = {4, 8};
+        assertEquals(0f, BlurTransition.getLevelPosition(radii, -3), DELTA);
+        assertEquals(1f, BlurTransition.getLevelPosition(radii, 30), DELTA);
+    }
+
+    @Test
+    public void drawBlendsAdjacentLevelsTest() {
+        Rect rect = new Rect();
+        transition.draw(canvas, rect, rect, 2.5f);
+
+        InOrder order = inOrder(paint, canvas);
+        order.verify(paint).setAlpha(255);
+        order.verify(canvas).drawBitmap(lowLevel, rect, rect, paint);
+        order.verify(paint).setAlpha(64);
+        order.verify(canvas).drawBitmap(highLevel, rect, rect, paint);
+    }
+
+    @Test
+    public void drawSingleLevelTest() {
+        Rect rect = new Rect();
+        transition.draw(canvas, rect, rect, 10);
+
+        verify(canvas).drawBitmap(highLevel, rect, rect, paint);
+        verify(canvas, never()).drawBitmap(eq(lowLevel), any(Rect.class), any(Rect.class), any(Paint.class));
+    }
+
+    @Test
+    public void getFrameClearsPreviousFrameTest() throws Exception {
+        Bitmap frame = mock(Bitmap.class);
+        setField("mFrame", frame);
+
+        assertSame(frame, transition.getFrame(5));
+        verify(frame).eraseColor(Color.TRANSPARENT);
+    }
+
+    private void setField(String name, Object value) throws Exception {
+        Field field = BlurTransition.class.getDeclaredField(name);
+        field.setAccessible(true);
+        field.set(transition, value);
+    }
+
+}
@@ -0,0 +1,113 @@
+package io.alterac.blurkit;
+
+import org.junit.Test;
+
+import static junit.framework.Assert.assertEquals;
+import static junit.framework.Assert.assertNull;
+import static junit.framework.Assert.assertTrue;
+
+public class CaptureRegionTest {
+
+    private static final float DELTA = 0.001f;
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    @Test
+    public void apronMatchesRadiusTest() {
+        CaptureRegion region = CaptureRegion.compute(400, 800, 200, 100, SCREEN_WIDTH, SCREEN_HEIGHT, 12, 0.1f);
+
+        assertEquals(20, region.cropWidth);
+        assertEquals(10, region.cropHeight);
+        assertEquals(12, region.cropX);
+        assertEquals(12, region.cropY);
+        assertEquals(20 + 2 * 12, region.bitmapWidth);
+        assertEquals(10 + 2 * 12, region.bitmapHeight);
+    }
+
+    @Test
+    public void apronIndependentOfLayoutSizeTest() {
+        CaptureRegion small = CaptureRegion.compute(500, 900, 50, 50, SCREEN_WIDTH, SCREEN_HEIGHT, 4, 0.2f);
+        CaptureRegion large = CaptureRegion.compute(0, 0, SCREEN_WIDTH, SCREEN_HEIGHT, SCREEN_WIDTH, SCREEN_HEIGHT, 4, 0.2f);
+
+        assertEquals(4, small.cropX);
+        assertEquals(small.cropWidth + 8, small.bitmapWidth);
+
+        // A full screen layout has no content around it, so nothing beyond it is captured.
+        assertEquals(0, large.cropX);
+        assertEquals(0, large.cropY);
+        assertEquals(large.cropWidth, large.bitmapWidth);
+        assertEquals(large.cropHeight, large.bitmapHeight);
+    }
+
+    @Test
+    public void apronClampedAtEachEdgeTest() {
+        CaptureRegion topLeft = CaptureRegion.compute(10, 20, 200, 200, SCREEN_WIDTH, SCREEN_HEIGHT, 10, 0.1f);
+        assertEquals(1, topLeft.cropX);
+        assertEquals(2, topLeft.cropY);
+
+        CaptureRegion bottomRight = CaptureRegion.compute(SCREEN_WIDTH - 230, SCREEN_HEIGHT - 210, 200, 200,
+                SCREEN_WIDTH, SCREEN_HEIGHT, 10, 0.1f);
+        assertEquals(bottomRight.cropX + bottomRight.cropWidth + 3, bottomRight.bitmapWidth);
+        assertEquals(bottomRight.cropY + bottomRight.cropHeight + 1, bottomRight.bitmapHeight);
+    }
+
+    @Test
+    public void offScreenLayoutTest() {
+        CaptureRegion region = CaptureRegion.compute(-100, SCREEN_HEIGHT - 50, 300, 300,
+                SCREEN_WIDTH, SCREEN_HEIGHT, 10, 0.1f);
+
+        // Only content to the right of and above the layout is on screen.
+        assertEquals(0, region.cropX);
+        assertEquals(region.cropWidth + 10, region.bitmapWidth);
+        assertEquals(10, region.cropY);
+        assertEquals(region.cropHeight + 10, region.bitmapHeight);
+    }
+
+    @Test
+    public void tooSmallLayoutTest() {
+        assertNull(CaptureRegion.compute(0, 0, 5, 100, SCREEN_WIDTH, SCREEN_HEIGHT, 10, 0.1f));
+    }
+
+    @Test
+    public void regionsAreMinimalAndSeamlessTest() {
+        int[] sizes = {1, 7, 64, 333, 1080};
+        int[] radii = {0, 1, 5, 12, 25};
+        float[] factors = {0.05f, 0.12f, 0.25f, 0.5f, 1f};
+        int[] positions = {-500, -3, 0, 1, 17, 400, 999, 1079, 1500};
+
+        for (int size : sizes) {
+            for (int radius : radii) {
+                for (float factor : factors) {
+                    for (int x : positions) {
+                        for (int y : positions) {
+                            CaptureRegion region = CaptureRegion.compute(x, y, size, size,
+                                    SCREEN_WIDTH, SCREEN_HEIGHT, radius, factor);
+                            if (region == null) {
+                                assertTrue((int) (size * factor) == 0);
+                                continue;
+                            }
+
+                            // The crop always lies inside the captured bitmap.
+                            assertTrue(region.cropX >= 0 && region.cropY >= 0);
+                            assertTrue(region.cropX + region.cropWidth <= region.bitmapWidth);
+                            assertTrue(region.cropY + region.cropHeight <= region.bitmapHeight);
+
+                            // No more than the radius is captured around the layout.
+                            assertTrue(region.bitmapWidth - region.cropWidth <= 2 * radius);
+                            assertTrue(region.bitmapHeight - region.cropHeight <= 2 * radius);
+                            assertTrue(region.getPixelCount()
+                                    <= (region.cropWidth + 2 * radius) * (region.cropHeight + 2 * radius));
+
+                            // The layout's top left corner lands exactly on the crop origin, so the
+                            // blurred frame lines up with the content behind it.
+                            assertEquals(region.cropX, x * factor + region.translateX, DELTA);
+                            assertEquals(region.cropY, y * factor + region.translateY, DELTA);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+}